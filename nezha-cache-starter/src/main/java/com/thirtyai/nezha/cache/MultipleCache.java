@@ -15,24 +15,49 @@
  */
 package com.thirtyai.nezha.cache;
 
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.StrUtil;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.thirtyai.nezha.cache.message.CacheKeyMessagePubSub;
-import com.thirtyai.nezha.cache.message.CacheKeyOperateMessage;
-import com.thirtyai.nezha.cache.message.OperateMessageType;
 import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
+import com.thirtyai.nezha.cache.redis.RedisCache;
+import com.thirtyai.nezha.cache.refresh.ICacheKeyValueRefreshSupport;
+import com.thirtyai.nezha.cache.support.CacheEntryTtl;
+import com.thirtyai.nezha.cache.support.CacheKeyBloomFilter;
+import com.thirtyai.nezha.cache.support.HotKeyDetector;
+import com.thirtyai.nezha.cache.support.SingleFlight;
 import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.NullValue;
 import org.springframework.cache.support.SimpleValueWrapper;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 /**
  * Multiple cache
  *
  * @author kyleju
  */
+@Slf4j
 public class MultipleCache implements Cache {
+	private static final int HOT_KEY_SKETCH_WIDTH_TIMES = 8;
+
 	@Getter
 	private MultipleCacheType multipleCacheType = MultipleCacheType.None;
 
@@ -53,16 +78,90 @@ public class MultipleCache implements Cache {
 	private final Cache redis;
 
 	/**
-	 * cache key message pub sub
+	 * cache key message pub sub, null when the caffeine tier is kept coherent by redis client tracking
 	 */
 	@Getter
+	@Nullable
 	private final CacheKeyMessagePubSub cacheKeyMessagePubSub;
 
+	/**
+	 * single flight loader for caffeine redis cache
+	 */
+	private final SingleFlight singleFlight = new SingleFlight();
+
+	/**
+	 * caffeine invalidations received from pub sub or client tracking
+	 */
+	@Getter
+	private final LongAdder invalidationsReceived = new LongAdder();
+
+	/**
+	 * local bloom filter of the existing keys, null when disabled
+	 */
+	@Getter
+	@Nullable
+	private final CacheKeyBloomFilter bloomFilter;
+
+	/**
+	 * null results are cached as a sentinel with the negative ttl
+	 */
+	private final boolean negativeCaching;
+
+	/**
+	 * entry ttl, the soft ttl of get with value loader
+	 */
+	private final CacheEntryTtl entryTtl;
+
+	/**
+	 * keys of the soft ttl reloads in flight
+	 */
+	private final Set<Object> reloading = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * soft ttl background reloads
+	 */
+	@Getter
+	private final LongAdder softReloads = new LongAdder();
+
+	/**
+	 * short ttl local tier of the hot keys of a redis cache, null when disabled
+	 */
+	@Getter
+	@Nullable
+	private final CaffeineCache hotKeyCache;
+
+	@Nullable
+	private final HotKeyDetector hotKeyDetector;
+
+	/**
+	 * keys promoted to the hot key tier
+	 */
+	@Getter
+	private final LongAdder hotKeyPromotions = new LongAdder();
+
+	/**
+	 * refresh ahead support, reads and writes are reported to it
+	 */
+	@Setter
+	private volatile ICacheKeyValueRefreshSupport cacheKeyValueRefreshSupport;
+
 	public MultipleCache(NezhaMultipleCacheProperties.CacheItem cacheItem, Cache caffeine, Cache redis, CacheKeyMessagePubSub cacheKeyMessagePubSub) {
 		this.cacheItem = cacheItem;
 		this.caffeine = caffeine;
 		this.redis = redis;
 		this.cacheKeyMessagePubSub = cacheKeyMessagePubSub;
+		this.negativeCaching = cacheItem.getNegativeTtlSeconds() > 0;
+		this.entryTtl = CacheEntryTtl.of(cacheItem);
+		if (caffeine == null && redis != null && cacheItem.getHotKeyThreshold() > 0) {
+			this.hotKeyCache = new CaffeineCache(cacheItem.getName(), Caffeine.newBuilder()
+				.expireAfterWrite(cacheItem.getHotKeyTtlSeconds(), TimeUnit.SECONDS).maximumSize(cacheItem.getHotKeyMaxSize()).build(), false);
+			this.hotKeyDetector = new HotKeyDetector(cacheItem.getHotKeyMaxSize() * HOT_KEY_SKETCH_WIDTH_TIMES, cacheItem.getHotKeyThreshold(),
+				cacheItem.getHotKeyWindowMillis(), cacheItem.getHotKeySampleRate());
+		} else {
+			this.hotKeyCache = null;
+			this.hotKeyDetector = null;
+		}
+		this.bloomFilter = cacheItem.getBloomFilterExpectedInsertions() > 0 ? new CacheKeyBloomFilter(cacheItem.getBloomFilterExpectedInsertions(), cacheItem.getBloomFilterFpp()) : null;
 
 		if (this.caffeine != null && this.redis != null) {
 			this.multipleCacheType = MultipleCacheType.CaffeineRedis;
@@ -87,85 +186,177 @@ public class MultipleCache implements Cache {
 
 	@Override
 	public ValueWrapper get(@NonNull Object key) {
-		if(StrUtil.isBlank(key.toString())){
-			return nullValueWrapper();
+		if(StrUtil.isBlank(key.toString()) || isRejected(key)){
+			return null;
 		}
+		ValueWrapper valueWrapper;
 		switch (multipleCacheType) {
 			case Caffeine:
-				return caffeine.get(key);
+				valueWrapper = caffeine.get(key);
+				break;
 			case Redis:
-				return redis.get(key);
+				valueWrapper = hotKeyGet(key);
+				if (valueWrapper == null) {
+					valueWrapper = redis.get(key);
+					if (valueWrapper != null) {
+						hotKeyRead(key, valueWrapper.get());
+					}
+				}
+				break;
 			case CaffeineRedis:
-				ValueWrapper valueWrapper = caffeine.get(key);
-				if (valueWrapper == null || valueWrapper.get() == null) {
+				valueWrapper = caffeine.get(key);
+				if (isMiss(valueWrapper)) {
 					valueWrapper = redis.get(key);
-					if (valueWrapper != null && valueWrapper.get() != null) {
+					if (!isMiss(valueWrapper)) {
 						caffeine.put(key, valueWrapper.get());
 					}
 				}
-				return valueWrapper == null ? nullValueWrapper() : valueWrapper;
+				break;
 			default:
-				return nullValueWrapper();
+				return null;
 		}
+		if (valueWrapper != null && valueWrapper.get() != null) {
+			read(key);
+		}
+		return valueWrapper;
 	}
 
 	@Override
 	public <T> T get(@NonNull Object key, Class<T> type) {
-		if(StrUtil.isBlank(key.toString())){
+		if(StrUtil.isBlank(key.toString()) || isRejected(key)){
 			return null;
 		}
+		T object;
 		switch (multipleCacheType) {
 			case Caffeine:
-				return caffeine.get(key, type);
+				object = caffeine.get(key, type);
+				break;
 			case Redis:
-				return redis.get(key, type);
+				object = hotKeyCache == null ? null : hotKeyCache.get(key, type);
+				if (object == null) {
+					object = redis.get(key, type);
+					hotKeyRead(key, object);
+				}
+				break;
 			case CaffeineRedis:
-				T object = caffeine.get(key, type);
+				object = caffeine.get(key, type);
 				if (object == null) {
 					object = redis.get(key, type);
 					if (object != null) {
 						caffeine.put(key, object);
 					}
 				}
-				return object;
+				break;
 			default:
 				return null;
 		}
+		if (object != null) {
+			read(key);
+		}
+		return object;
 	}
 
+	/**
+	 * get or load, a key rejected by the bloom filter is still loaded, it may be created after the seeding on another node,
+	 * the filter learns the key when a value is found.
+	 */
 	@Override
 	public <T> T get(@NonNull Object key, @NonNull Callable<T> valueLoader) {
 		if(StrUtil.isBlank(key.toString())){
 			return null;
 		}
+		boolean rejected = isRejected(key);
+		T value = getOrLoad(key, valueLoader);
+		if (rejected && value != null) {
+			addBloomFilterKey(key);
+		}
+		return value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T getOrLoad(Object key, Callable<T> valueLoader) {
+		ValueWrapper valueWrapper;
 		switch (multipleCacheType) {
 			case Caffeine:
-				return caffeine.get(key, valueLoader);
+				valueWrapper = caffeine.get(key);
+				if (!isMiss(valueWrapper)) {
+					read(key);
+					reloadIfStale(key, valueLoader, caffeineRemainingTtlMillis(key));
+					return (T) valueWrapper.get();
+				}
+				T value = caffeine.get(key, valueLoader);
+				reloadIfStale(key, valueLoader, caffeineRemainingTtlMillis(key));
+				return value;
 			case Redis:
-				return redis.get(key, valueLoader);
-			case CaffeineRedis:
-				T object = caffeine.get(key, valueLoader);
-				if (object == null) {
-					object = redis.get(key, valueLoader);
-					if (object != null) {
-						this.caffeine.put(key, object);
+				valueWrapper = hotKeyGet(key);
+				if (valueWrapper != null) {
+					read(key);
+					return (T) valueWrapper.get();
+				}
+				if (entryTtl.isSoftExpiring() && redis instanceof RedisCache) {
+					valueWrapper = redis.get(key);
+					if (!isMiss(valueWrapper)) {
+						read(key);
+						reloadIfStale(key, valueLoader, ((RedisCache) redis).remainingTtlMillis(key));
+						hotKeyRead(key, valueWrapper.get());
+						return (T) valueWrapper.get();
 					}
 				}
-				return object;
+				T loaded = redis.get(key, valueLoader);
+				// the redis cache does not tell a hit from a load, a found value counts as read
+				if (loaded != null) {
+					read(key);
+				}
+				hotKeyRead(key, loaded);
+				return loaded;
+			case CaffeineRedis:
+				valueWrapper = caffeine.get(key);
+				if (!isMiss(valueWrapper)) {
+					read(key);
+					reloadIfStale(key, valueLoader, caffeineRemainingTtlMillis(key));
+					return (T) valueWrapper.get();
+				}
+				return singleFlight.execute(key, () -> loadThrough(key, valueLoader));
 			default:
 				return null;
 		}
 	}
 
+	/**
+	 * load through caffeine -> redis -> value loader, only called in single flight.
+	 * the redis cache loads and stores the value on miss.
+	 *
+	 * @param key         key
+	 * @param valueLoader value loader
+	 * @param <T>         T
+	 * @return value
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T loadThrough(Object key, Callable<T> valueLoader) {
+		ValueWrapper valueWrapper = caffeine.get(key);
+		if (!isMiss(valueWrapper)) {
+			return (T) valueWrapper.get();
+		}
+		T value = redis.get(key, valueLoader);
+		if (value != null || negativeCaching) {
+			caffeine.put(key, value);
+		}
+		return value;
+	}
+
 	@Override
 	public void put(@NonNull Object key, Object value) {
 		if(StrUtil.isNotBlank(key.toString())) {
+			if (bloomFilter != null && value != null) {
+				bloomFilter.put(key);
+			}
 			switch (multipleCacheType) {
 				case Caffeine:
 					caffeine.put(key, value);
 					break;
 				case Redis:
 					redis.put(key, value);
+					evictHotKey(key);
 					break;
 				case CaffeineRedis:
 					redis.put(key, value);
@@ -174,7 +365,115 @@ public class MultipleCache implements Cache {
 				default:
 					break;
 			}
+			written(key);
+		}
+	}
+
+	/**
+	 * bulk get
+	 * caffeine hits come from getAllPresent, the rest from redis with one MGET,
+	 * the remaining misses are loaded by the bulk loader in one batch and written back.
+	 * with negative caching the keys the loader has no value for are stored as the null sentinel,
+	 * a sentinel hit resolves the key without putting it into the result.
+	 *
+	 * @param keys       keys
+	 * @param bulkLoader bulk loader of the missing keys, can be null
+	 * @return value, the keys without value are absent
+	 */
+	public Map<Object, Object> getAll(@NonNull Collection<?> keys, @Nullable Function<Set<?>, Map<?, ?>> bulkLoader) {
+		Set<Object> missingKeys = new LinkedHashSet<>(keys.size());
+		keys.forEach(key -> {
+			if (key != null && StrUtil.isNotBlank(key.toString()) && !isRejected(key)) {
+				missingKeys.add(key);
+			}
+		});
+		Map<Object, Object> result = new HashMap<>(missingKeys.size());
+		if (missingKeys.isEmpty() || multipleCacheType.equals(MultipleCacheType.None)) {
+			return result;
+		}
+
+		if (caffeine != null) {
+			collectHits(getAllPresentFromCaffeine(missingKeys), result, missingKeys);
+		}
+		if (redis != null && !missingKeys.isEmpty()) {
+			Map<Object, Object> redisValues = getAllFromRedis(missingKeys);
+			collectHits(redisValues, result, missingKeys);
+			if (caffeine != null) {
+				putAllToCaffeine(redisValues);
+			}
+		}
+		if (bulkLoader == null || missingKeys.isEmpty()) {
+			return result;
+		}
+
+		Map<?, ?> loaded = bulkLoader.apply(Collections.unmodifiableSet(missingKeys));
+		Map<Object, Object> loadedValues = new HashMap<>(missingKeys.size());
+		if (loaded != null) {
+			loaded.forEach((key, value) -> {
+				if (key != null && value != null && missingKeys.contains(key)) {
+					loadedValues.put(key, value);
+				}
+			});
+		}
+		Map<Object, Object> storeValues = new HashMap<>(loadedValues);
+		if (negativeCaching) {
+			missingKeys.forEach(key -> storeValues.putIfAbsent(key, null));
+		}
+		if (storeValues.isEmpty()) {
+			return result;
+		}
+		if (redis != null) {
+			putAllToRedis(storeValues);
+		}
+		if (caffeine != null) {
+			putAllToCaffeine(storeValues);
+		}
+		loadedValues.keySet().forEach(this::written);
+		if (bloomFilter != null) {
+			loadedValues.keySet().forEach(bloomFilter::put);
+		}
+		result.putAll(loadedValues);
+		return result;
+	}
+
+	/**
+	 * bulk put, redis values are written with one pipeline
+	 *
+	 * @param values key values
+	 */
+	public void putAll(@NonNull Map<?, ?> values) {
+		Map<Object, Object> keyValues = new HashMap<>(values.size());
+		values.forEach((key, value) -> {
+			if (key != null && StrUtil.isNotBlank(key.toString())) {
+				keyValues.put(key, value);
+			}
+		});
+		if (keyValues.isEmpty()) {
+			return;
+		}
+		if (bloomFilter != null) {
+			keyValues.forEach((key, value) -> {
+				if (value != null) {
+					bloomFilter.put(key);
+				}
+			});
+		}
+		switch (multipleCacheType) {
+			case Caffeine:
+				keyValues.forEach(caffeine::put);
+				break;
+			case Redis:
+				putAllToRedis(keyValues);
+				keyValues.keySet().forEach(this::evictHotKey);
+				break;
+			case CaffeineRedis:
+				putAllToRedis(keyValues);
+				keyValues.keySet().forEach(this::evictCaffeineCache);
+				break;
+			default:
+				return;
 		}
+		keyValues.keySet().forEach(this::written);
 	}
 
 	@Override
@@ -182,11 +481,16 @@ public class MultipleCache implements Cache {
 		if(StrUtil.isBlank(key.toString())){
 			return nullValueWrapper();
 		}
+		if (bloomFilter != null && value != null) {
+			bloomFilter.put(key);
+		}
 		switch (multipleCacheType) {
 			case Caffeine:
 				return caffeine.putIfAbsent(key, value);
 			case Redis:
-				return redis.putIfAbsent(key, value);
+				ValueWrapper existing = redis.putIfAbsent(key, value);
+				evictHotKey(key);
+				return existing;
 			case CaffeineRedis:
 				ValueWrapper valueWrapper = redis.putIfAbsent(key, value);
 				evictCaffeineCache(key);
@@ -206,6 +510,7 @@ public class MultipleCache implements Cache {
 					break;
 				case Redis:
 					redis.evict(key);
+					evictHotKey(key);
 					break;
 				case CaffeineRedis:
 					redis.evict(key);
@@ -226,7 +531,11 @@ public class MultipleCache implements Cache {
 			case Caffeine:
 				return caffeine.evictIfPresent(key);
 			case Redis:
-				return redis.evictIfPresent(key);
+				boolean evicted = redis.evictIfPresent(key);
+				if (evicted) {
+					evictHotKey(key);
+				}
+				return evicted;
 			case CaffeineRedis:
 				boolean value = redis.evictIfPresent(key);
 				if (value) {
@@ -246,6 +555,7 @@ public class MultipleCache implements Cache {
 				break;
 			case Redis:
 				redis.clear();
+				clearHotKeys();
 				break;
 			case CaffeineRedis:
 				redis.clear();
@@ -267,12 +577,261 @@ public class MultipleCache implements Cache {
 		return false;
 	}
 
+	/**
+	 * the local tier invalidated by cache key messages, caffeine or the hot key tier of a redis cache
+	 *
+	 * @return value, null when no local tier
+	 */
+	@Nullable
+	public Cache getLocalTier() {
+		return caffeine != null ? caffeine : hotKeyCache;
+	}
+
+	/**
+	 * the redis tier was written outside this cache by the async facade, the local tiers are invalidated and published
+	 *
+	 * @param key   key
+	 * @param value written value
+	 */
+	public void redisWritten(Object key, @Nullable Object value) {
+		if (bloomFilter != null && value != null) {
+			bloomFilter.put(key);
+		}
+		redisEvicted(key);
+		written(key);
+	}
+
+	/**
+	 * the redis tier key was evicted outside this cache by the async facade, the local tiers are invalidated and published
+	 *
+	 * @param key key
+	 */
+	public void redisEvicted(Object key) {
+		if (caffeine != null) {
+			evictCaffeineCache(key);
+		} else {
+			evictHotKey(key);
+		}
+	}
+
+	@Nullable
+	private ValueWrapper hotKeyGet(Object key) {
+		return hotKeyCache == null ? null : hotKeyCache.get(key);
+	}
+
+	/**
+	 * a redis read of the key, the key is promoted to the hot key tier when hot
+	 */
+	private void hotKeyRead(Object key, @Nullable Object value) {
+		if (hotKeyCache != null && value != null && hotKeyDetector.record(key)) {
+			hotKeyCache.put(key, value);
+			hotKeyPromotions.increment();
+		}
+	}
+
+	private void evictHotKey(Object key) {
+		if (hotKeyCache != null) {
+			hotKeyCache.evict(key);
+			if (cacheKeyMessagePubSub != null) {
+				cacheKeyMessagePubSub.evict(this.getName(), key.toString());
+			}
+		}
+	}
+
+	private void clearHotKeys() {
+		if (hotKeyCache != null) {
+			hotKeyCache.clear();
+			if (cacheKeyMessagePubSub != null) {
+				cacheKeyMessagePubSub.clear(this.getName());
+			}
+		}
+	}
+
+	/**
+	 * serve the stale value and reload it once in background, on the refresh support executor when present
+	 */
+	private <T> void reloadIfStale(Object key, Callable<T> valueLoader, long remainingTtlMillis) {
+		if (!entryTtl.isStale(remainingTtlMillis) || !reloading.add(key)) {
+			return;
+		}
+		softReloads.increment();
+		Runnable reload = () -> {
+			try {
+				T value = valueLoader.call();
+				if (value != null || negativeCaching) {
+					put(key, value);
+				}
+			} catch (Exception exception) {
+				log.warn("soft ttl reload of {}[{}] failed, {}", getName(), key, ExceptionUtil.getMessage(exception));
+			} finally {
+				reloading.remove(key);
+			}
+		};
+		try {
+			ICacheKeyValueRefreshSupport refreshSupport = this.cacheKeyValueRefreshSupport;
+			if (refreshSupport != null) {
+				refreshSupport.run(reload);
+			} else {
+				ThreadUtil.execute(reload);
+			}
+		} catch (RuntimeException exception) {
+			reloading.remove(key);
+			log.warn("soft ttl reload of {}[{}] is skipped, {}", getName(), key, ExceptionUtil.getMessage(exception));
+		}
+	}
+
+	private long caffeineRemainingTtlMillis(Object key) {
+		if (!entryTtl.isSoftExpiring() || !(caffeine instanceof CaffeineCache)) {
+			return -1L;
+		}
+		return ((CaffeineCache) caffeine).getNativeCache().policy().expireVariably()
+			.map(expiration -> expiration.getExpiresAfter(key, TimeUnit.MILLISECONDS).orElse(-1L)).orElse(-1L);
+	}
+
+	/**
+	 * miss or not, a cached null is a hit with negative caching only
+	 *
+	 * @param valueWrapper value wrapper
+	 * @return value
+	 */
+	public boolean isMiss(@Nullable ValueWrapper valueWrapper) {
+		return valueWrapper == null || (valueWrapper.get() == null && !negativeCaching);
+	}
+
+	/**
+	 * the key is rejected by the seeded bloom filter, it does not exist in the source
+	 *
+	 * @param key key
+	 * @return value
+	 */
+	public boolean isRejected(Object key) {
+		return bloomFilter != null && bloomFilter.isSeeded() && !bloomFilter.mightContain(key);
+	}
+
+	/**
+	 * seed the bloom filter with all existing keys of the source, the keys never put are rejected afterwards
+	 *
+	 * @param keys all existing keys
+	 * @return value seeded keys count
+	 */
+	public long seedBloomFilter(Iterable<?> keys) {
+		if (bloomFilter == null) {
+			return 0L;
+		}
+		long count = 0L;
+		for (Object key : keys) {
+			if (key != null) {
+				bloomFilter.put(key);
+				count++;
+			}
+		}
+		bloomFilter.markSeeded();
+		return count;
+	}
+
+	/**
+	 * add a key created in the source to the bloom filter
+	 *
+	 * @param key key
+	 */
+	public void addBloomFilterKey(Object key) {
+		if (bloomFilter != null && key != null) {
+			bloomFilter.put(key);
+		}
+	}
+
+	private void collectHits(Map<Object, Object> hits, Map<Object, Object> result, Set<Object> missingKeys) {
+		hits.forEach((key, value) -> {
+			if (!(value instanceof NullValue)) {
+				result.put(key, value);
+			}
+			missingKeys.remove(key);
+			read(key);
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<Object, Object> getAllPresentFromCaffeine(Set<Object> keys) {
+		Map<Object, Object> hits = new HashMap<>(keys.size());
+		if (caffeine instanceof CaffeineCache) {
+			((CaffeineCache) caffeine).getNativeCache().getAllPresent(keys).forEach((key, value) -> {
+				if (value != null && (negativeCaching || !(value instanceof NullValue))) {
+					hits.put(key, value);
+				}
+			});
+		} else {
+			keys.forEach(key -> {
+				ValueWrapper valueWrapper = caffeine.get(key);
+				if (!isMiss(valueWrapper)) {
+					hits.put(key, valueWrapper.get() == null ? NullValue.INSTANCE : valueWrapper.get());
+				}
+			});
+		}
+		return hits;
+	}
+
+	private void putAllToCaffeine(Map<Object, Object> values) {
+		if (caffeine instanceof CaffeineCache) {
+			Map<Object, Object> storeValues = new HashMap<>(values.size());
+			values.forEach((key, value) -> storeValues.put(key, value == null ? NullValue.INSTANCE : value));
+			((CaffeineCache) caffeine).getNativeCache().putAll(storeValues);
+		} else {
+			values.forEach((key, value) -> caffeine.put(key, value instanceof NullValue ? null : value));
+		}
+	}
+
+	private Map<Object, Object> getAllFromRedis(Set<Object> keys) {
+		if (redis instanceof RedisCache) {
+			Map<Object, Object> hits = ((RedisCache) redis).getAll(keys);
+			if (!negativeCaching) {
+				hits.values().removeIf(value -> value instanceof NullValue);
+			}
+			return hits;
+		}
+		Map<Object, Object> hits = new HashMap<>(keys.size());
+		keys.forEach(key -> {
+			ValueWrapper valueWrapper = redis.get(key);
+			if (!isMiss(valueWrapper)) {
+				hits.put(key, valueWrapper.get() == null ? NullValue.INSTANCE : valueWrapper.get());
+			}
+		});
+		return hits;
+	}
+
+	private void putAllToRedis(Map<Object, Object> values) {
+		if (redis instanceof RedisCache) {
+			((RedisCache) redis).putAll(values);
+		} else {
+			values.forEach(redis::put);
+		}
+	}
+
+	private void read(Object key) {
+		ICacheKeyValueRefreshSupport refreshSupport = this.cacheKeyValueRefreshSupport;
+		if (refreshSupport != null && cacheItem.getRefreshTriggerSeconds() > 0) {
+			refreshSupport.read(this, key);
+		}
+	}
+
+	private void written(Object key) {
+		ICacheKeyValueRefreshSupport refreshSupport = this.cacheKeyValueRefreshSupport;
+		if (refreshSupport != null && cacheItem.getRefreshTriggerSeconds() > 0) {
+			refreshSupport.written(this, key);
+		}
+	}
+
 	private void evictCaffeineCache(Object key) {
-		cacheKeyMessagePubSub.publish(new CacheKeyOperateMessage(this.getName(), key.toString(), OperateMessageType.Evict));
+		caffeine.evict(key);
+		if (cacheKeyMessagePubSub != null) {
+			cacheKeyMessagePubSub.evict(this.getName(), key.toString());
+		}
 	}
 
 	private void clearCaffeineCache() {
-		cacheKeyMessagePubSub.publish(new CacheKeyOperateMessage(this.getName(), null, OperateMessageType.Clear));
+		caffeine.clear();
+		if (cacheKeyMessagePubSub != null) {
+			cacheKeyMessagePubSub.clear(this.getName());
+		}
 	}
 
 	protected Cache.ValueWrapper nullValueWrapper() {
@@ -23,8 +23,19 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import com.thirtyai.nezha.cache.message.CacheKeyMessagePubSub;
 import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
 import com.thirtyai.nezha.cache.redis.RedisCache;
+import com.thirtyai.nezha.cache.redis.RedisCacheLoadLease;
+import com.thirtyai.nezha.cache.redis.RedisCacheValueCompressor;
+import com.thirtyai.nezha.cache.refresh.ICacheKeyValueRefreshSupport;
+import com.thirtyai.nezha.cache.support.CacheEntryTtl;
+import com.thirtyai.nezha.cache.support.CacheItemExpiry;
+import com.thirtyai.nezha.cache.support.CaffeineHeapBudget;
+import com.thirtyai.nezha.cache.support.ObjectSizeWeigher;
+import com.thirtyai.nezha.cache.tracking.ClientTrackingInvalidator;
 import com.thirtyai.nezha.redis.operator.RedisOperator;
+import com.thirtyai.nezha.redis.serializer.RedisValueSerializerRegistry;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.ObjectProvider;
@@ -39,8 +50,11 @@ import org.springframework.lang.Nullable;
 
 import java.time.Duration;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Multiple cache manager
@@ -61,11 +75,39 @@ public class MultipleCacheManager implements CacheManager, InitializingBean {
 	private final CacheKeyMessagePubSub cacheKeyMessagePubSub;
 	private final ObjectProvider<RedisConnectionFactory> redisConnectionFactoryObjectProvider;
 	private final RedisOperator redisOperator;
+	private final RedisValueSerializerRegistry redisValueSerializerRegistry;
 
 	private final Map<String, MultipleCache> caches = MapUtil.newConcurrentHashMap();
+	/**
+	 * memoized caches of the names exactly as asked, the hit path of getCache neither lowercases nor allocates
+	 */
+	private final Map<String, MultipleCache> resolvedCaches = MapUtil.newConcurrentHashMap();
+	private final List<Consumer<MultipleCache>> cacheListeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * shared heap budget of the caffeine caches, null means no budget
+	 */
+	@Getter
+	private CaffeineHeapBudget caffeineHeapBudget;
+
+	/**
+	 * refresh ahead support of all caches
+	 */
+	@Getter
+	private volatile ICacheKeyValueRefreshSupport cacheKeyValueRefreshSupport;
+
+	/**
+	 * client tracking invalidator of caffeine redis caches, only in {@link CacheCoherenceMode#ClientTracking} mode
+	 */
+	@Getter
+	@Setter
+	private volatile ClientTrackingInvalidator clientTrackingInvalidator;
 
 	@Override
 	public void afterPropertiesSet() {
+		if (multipleCacheProperties.getCaffeineHeapBudgetBytes() > 0) {
+			caffeineHeapBudget = new CaffeineHeapBudget(multipleCacheProperties.getCaffeineHeapBudgetBytes());
+		}
 		if (multipleCacheProperties.getCaffeine() != null) {
 			multipleCacheProperties.getCaffeine().forEach(item -> {
 				try {
@@ -73,7 +115,7 @@ public class MultipleCacheManager implements CacheManager, InitializingBean {
 						if (!caches.containsKey(item.getName().toLowerCase())) {
 							MultipleCache multipleCache = createMultipleCache(item, MultipleCacheType.Caffeine, null);
 							if (multipleCache != null) {
-								caches.put(item.getName().toLowerCase(), multipleCache);
+								registerCache(item.getName(), multipleCache);
 							}
 						}
 					}
@@ -91,7 +133,7 @@ public class MultipleCacheManager implements CacheManager, InitializingBean {
 							if (!caches.containsKey(item.getName().toLowerCase())) {
 								MultipleCache multipleCache = createMultipleCache(item, MultipleCacheType.Caffeine, redisConnectionFactory);
 								if (multipleCache != null) {
-									caches.put(item.getName().toLowerCase(), multipleCache);
+									registerCache(item.getName(), multipleCache);
 								}
 							}
 						}
@@ -108,7 +150,7 @@ public class MultipleCacheManager implements CacheManager, InitializingBean {
 							if (!caches.containsKey(item.getName().toLowerCase())) {
 								MultipleCache multipleCache = createMultipleCache(item, MultipleCacheType.CaffeineRedis, redisConnectionFactory);
 								if (multipleCache != null) {
-									caches.put(item.getName().toLowerCase(), multipleCache);
+									registerCache(item.getName(), multipleCache);
 								}
 							}
 						}
@@ -120,6 +162,32 @@ public class MultipleCacheManager implements CacheManager, InitializingBean {
 		});
 	}
 
+	/**
+	 * add a listener of the caches, it receives the existing caches at once and the caches created later
+	 *
+	 * @param listener cache listener
+	 */
+	public void addCacheListener(Consumer<MultipleCache> listener) {
+		cacheListeners.add(listener);
+		caches.values().forEach(listener);
+	}
+
+	private void registerCache(String name, MultipleCache multipleCache) {
+		caches.put(name.toLowerCase(), multipleCache);
+		resolvedCaches.put(name, multipleCache);
+		cacheListeners.forEach(listener -> listener.accept(multipleCache));
+	}
+
+	/**
+	 * set refresh ahead support to all caches
+	 *
+	 * @param cacheKeyValueRefreshSupport {@link ICacheKeyValueRefreshSupport}
+	 */
+	public void setCacheKeyValueRefreshSupport(ICacheKeyValueRefreshSupport cacheKeyValueRefreshSupport) {
+		this.cacheKeyValueRefreshSupport = cacheKeyValueRefreshSupport;
+		caches.values().forEach(multipleCache -> multipleCache.setCacheKeyValueRefreshSupport(cacheKeyValueRefreshSupport));
+	}
+
 	/**
 	 * create multiple cache
 	 *
@@ -129,16 +197,28 @@ public class MultipleCacheManager implements CacheManager, InitializingBean {
 	 */
 	@Nullable
 	private MultipleCache createMultipleCache(NezhaMultipleCacheProperties.CacheItem item, MultipleCacheType multipleCacheType, RedisConnectionFactory connectionFactory) {
+		MultipleCache multipleCache;
 		switch (multipleCacheType) {
 			case Caffeine:
-				return new MultipleCache(item, createCaffeineCache(item), null, cacheKeyMessagePubSub);
+				multipleCache = new MultipleCache(item, createCaffeineCache(item), null, cacheKeyMessagePubSub);
+				break;
 			case Redis:
-				return new MultipleCache(item, null, createRedisCache(item, connectionFactory), cacheKeyMessagePubSub);
+				multipleCache = new MultipleCache(item, null, createRedisCache(item, connectionFactory), cacheKeyMessagePubSub);
+				break;
 			case CaffeineRedis:
-				return new MultipleCache(item, createCaffeineCache(item), createRedisCache(item, connectionFactory), cacheKeyMessagePubSub);
+				RedisCache redisCache = createRedisCache(item, connectionFactory);
+				if (clientTrackingInvalidator != null && redisCache != null && CacheCoherenceMode.ClientTracking.equals(multipleCacheProperties.getCoherenceMode())) {
+					multipleCache = new MultipleCache(item, createCaffeineCache(item), redisCache, null);
+					clientTrackingInvalidator.track(multipleCache, redisCache.getKeyPrefix());
+				} else {
+					multipleCache = new MultipleCache(item, createCaffeineCache(item), redisCache, cacheKeyMessagePubSub);
+				}
+				break;
 			default:
 				return null;
 		}
+		multipleCache.setCacheKeyValueRefreshSupport(cacheKeyValueRefreshSupport);
+		return multipleCache;
 	}
 
 	/**
@@ -149,26 +229,63 @@ public class MultipleCacheManager implements CacheManager, InitializingBean {
 	 * @return value {@link RedisCache}
 	 */
 	private RedisCache createRedisCache(NezhaMultipleCacheProperties.CacheItem item, RedisConnectionFactory connectionFactory) {
-		RedisCacheConfiguration redisCacheConfiguration = determineConfiguration(item.getTtlSeconds());
+		RedisCacheConfiguration redisCacheConfiguration = determineConfiguration(item);
 		if (redisCacheConfiguration == null) {
 			return null;
 		}
-		return new RedisCache(item.getName(), RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), redisCacheConfiguration);
+		RedisCacheLoadLease loadLease = null;
+		if (item.isDistributedLoad()) {
+			loadLease = new RedisCacheLoadLease(redisOperator.getRedisTemplate(), redisOperator.getScriptRegistry(), item.getDistributedLoadLeaseMillis(), item.getDistributedLoadWaitMillis(), item.getDistributedLoadPollMillis());
+		}
+		int compressThresholdBytes = item.getCompressThresholdBytes() == null ? multipleCacheProperties.getCompressThresholdBytes() : item.getCompressThresholdBytes();
+		RedisCacheValueCompressor compressor = new RedisCacheValueCompressor(compressThresholdBytes, multipleCacheProperties.getCompressLevel());
+		return new RedisCache(item.getName(), RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), redisCacheConfiguration, redisOperator.getRedisTemplate(), loadLease, compressor,
+			CacheEntryTtl.of(item));
 	}
 
 	/**
 	 * create caffeine cache
+	 * limit precedence: item maximumWeightBytes, item maximumSize, heap budget share, global cacheMaxSize.
 	 *
 	 * @param item {@link com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties.CacheItem}
 	 * @return value {@link CaffeineCache}
 	 */
 	private CaffeineCache createCaffeineCache(NezhaMultipleCacheProperties.CacheItem item) {
 		Caffeine<Object, Object> caffeine = Caffeine.newBuilder();
-		caffeine.expireAfterWrite(item.getTtlSeconds(), TimeUnit.SECONDS);
-		if (multipleCacheProperties.getCacheMaxSize() > 0) {
+		boolean negativeCaching = item.getNegativeTtlSeconds() > 0;
+		CacheEntryTtl entryTtl = CacheEntryTtl.of(item);
+		if (entryTtl.isVariable() || CacheWarmUpStrategy.Snapshot.equals(item.getWarmUp())) {
+			caffeine.expireAfter(new CacheItemExpiry(entryTtl));
+		} else {
+			caffeine.expireAfterWrite(item.getTtlSeconds(), TimeUnit.SECONDS);
+		}
+		if (item.getExpireAfterAccessSeconds() > 0) {
+			caffeine.expireAfterAccess(item.getExpireAfterAccessSeconds(), TimeUnit.SECONDS);
+		}
+		boolean budgeted = false;
+		if (item.getMaximumWeightBytes() > 0) {
+			caffeine.maximumWeight(item.getMaximumWeightBytes()).weigher(ObjectSizeWeigher.INSTANCE);
+		} else if (item.getMaximumSize() > 0) {
+			caffeine.maximumSize(item.getMaximumSize());
+		} else if (caffeineHeapBudget != null) {
+			caffeine.maximumWeight(caffeineHeapBudget.getBudgetBytes()).weigher(ObjectSizeWeigher.INSTANCE);
+			budgeted = true;
+		} else if (multipleCacheProperties.getCacheMaxSize() > 0) {
 			caffeine.maximumSize(multipleCacheProperties.getCacheMaxSize());
 		}
-		return new CaffeineCache(item.getName(), caffeine.build(), multipleCacheProperties.isAllowNullValues());
+		if (multipleCacheProperties.isRecordStats()) {
+			caffeine.recordStats();
+		}
+		if (item.isSoftValues()) {
+			caffeine.softValues();
+		} else if (item.isWeakValues()) {
+			caffeine.weakValues();
+		}
+		CaffeineCache caffeineCache = new CaffeineCache(item.getName(), caffeine.build(), negativeCaching || multipleCacheProperties.isAllowNullValues());
+		if (budgeted) {
+			caffeineHeapBudget.register(caffeineCache, item.getHeapBudgetShare());
+		}
+		return caffeineCache;
 	}
 
 	/**
@@ -181,19 +298,41 @@ public class MultipleCacheManager implements CacheManager, InitializingBean {
 	 */
 	@Override
 	public MultipleCache getCache(@NonNull String name) {
-		if (caches.containsKey(name.toLowerCase())) {
-			return caches.get(name.toLowerCase());
+		MultipleCache multipleCache = resolvedCaches.get(name);
+		if (multipleCache != null) {
+			return multipleCache;
 		}
+		return resolveCache(name);
+	}
+
+	/**
+	 * resolve the cache of the name once, case insensitive, the dynamic cache is created at most once under the lock.
+	 *
+	 * @param name cache name
+	 * @return value
+	 */
+	private synchronized MultipleCache resolveCache(String name) {
+		String lowerCaseName = name.toLowerCase();
+		MultipleCache multipleCache = caches.get(lowerCaseName);
+		if (multipleCache == null) {
+			multipleCache = createDynamicCache(name, lowerCaseName);
+		}
+		if (multipleCache != null) {
+			resolvedCaches.put(name, multipleCache);
+		}
+		return multipleCache;
+	}
 
+	private MultipleCache createDynamicCache(String name, String lowerCaseName) {
 		MultipleCacheType multipleCacheType = MultipleCacheType.None;
 
-		if (name.toLowerCase().endsWith(REDIS_END_STRING)) {
+		if (lowerCaseName.endsWith(REDIS_END_STRING)) {
 			multipleCacheType = MultipleCacheType.Redis;
 		}
-		if (name.toLowerCase().endsWith(CAFFEINE_END_STRING)) {
+		if (lowerCaseName.endsWith(CAFFEINE_END_STRING)) {
 			multipleCacheType = MultipleCacheType.Caffeine;
 		}
-		if (name.toLowerCase().endsWith(CAFFEINE_REDIS_END_STRING)) {
+		if (lowerCaseName.endsWith(CAFFEINE_REDIS_END_STRING)) {
 			multipleCacheType = MultipleCacheType.CaffeineRedis;
 		}
 
@@ -220,7 +359,7 @@ public class MultipleCacheManager implements CacheManager, InitializingBean {
 						multipleCache = createMultipleCache(cacheItem, multipleCacheType, redisConnectionFactory);
 					}
 					if (multipleCache != null) {
-						caches.put(cacheItem.getName().toLowerCase(), multipleCache);
+						registerCache(cacheItem.getName(), multipleCache);
 						return multipleCache;
 					}
 				}
@@ -241,16 +380,19 @@ public class MultipleCacheManager implements CacheManager, InitializingBean {
 	/**
 	 * determine configuration
 	 *
+	 * @param item cache item, the serializer is chosen by its name.
 	 * @return value
 	 */
-	private RedisCacheConfiguration determineConfiguration(int ttlSeconds) {
-		if (ttlSeconds <= 0) {
+	private RedisCacheConfiguration determineConfiguration(NezhaMultipleCacheProperties.CacheItem item) {
+		if (item.getTtlSeconds() <= 0) {
 			return null;
 		}
 		RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig();
-		config = config.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(this.redisOperator.getRedisTemplate().getValueSerializer()));
-		config = config.entryTtl(Duration.ofSeconds(ttlSeconds));
-		config = config.disableCachingNullValues();
+		config = config.serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(redisValueSerializerRegistry.getSerializer(item.getSerializer())));
+		config = config.entryTtl(Duration.ofSeconds(item.getTtlSeconds()));
+		if (item.getNegativeTtlSeconds() <= 0) {
+			config = config.disableCachingNullValues();
+		}
 		return config;
 	}
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.async;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * async cacheable
+ * caches the result of a method returning Mono, Flux or CompletableFuture in an {@link AsyncMultipleCache},
+ * a Flux is cached as the list of its elements.
+ *
+ * @author kyleju
+ */
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+@Documented
+public @interface AsyncCacheable {
+	/**
+	 * cache name, see {@link com.thirtyai.nezha.cache.MultipleCacheManager#getCache(String)}
+	 *
+	 * @return value
+	 */
+	String cacheName();
+
+	/**
+	 * key SpEL
+	 *
+	 * @return value
+	 */
+	String key();
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.async;
+
+import cn.hutool.core.util.StrUtil;
+import com.thirtyai.nezha.common.spel.AbstractExpressionEvaluator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * async cacheable aspect
+ * the method is subscribed only on a cache miss, see {@link AsyncCacheable}
+ *
+ * @author kyleju
+ */
+@Slf4j
+@Aspect
+@RequiredArgsConstructor
+public class AsyncCacheableAspect extends AbstractExpressionEvaluator {
+	private final AsyncMultipleCacheManager asyncMultipleCacheManager;
+
+	@Around("@annotation(asyncCacheable)")
+	@SuppressWarnings("unchecked")
+	public Object around(ProceedingJoinPoint pjp, AsyncCacheable asyncCacheable) throws Throwable {
+		Class<?> returnType = ((MethodSignature) pjp.getSignature()).getReturnType();
+		AsyncMultipleCache asyncMultipleCache = asyncMultipleCacheManager.getCache(asyncCacheable.cacheName());
+		if (asyncMultipleCache == null) {
+			log.warn("no {} async cache, {} is not cached.", asyncCacheable.cacheName(), pjp.getSignature().toShortString());
+			return pjp.proceed();
+		}
+		String key = evalSePlParam(pjp, asyncCacheable.key());
+		if (StrUtil.isBlank(key)) {
+			return pjp.proceed();
+		}
+		if (Mono.class.isAssignableFrom(returnType)) {
+			return asyncMultipleCache.get(key, () -> (Mono<Object>) proceed(pjp));
+		}
+		if (Flux.class.isAssignableFrom(returnType)) {
+			return asyncMultipleCache.get(key, () -> ((Flux<Object>) proceed(pjp)).collectList())
+				.flatMapMany(list -> Flux.fromIterable((List<Object>) list));
+		}
+		if (CompletableFuture.class.isAssignableFrom(returnType)) {
+			return asyncMultipleCache.get(key, () -> Mono.fromCompletionStage((CompletionStage<Object>) proceed(pjp))).toFuture();
+		}
+		return pjp.proceed();
+	}
+
+	private static Object proceed(ProceedingJoinPoint pjp) {
+		try {
+			return pjp.proceed();
+		} catch (RuntimeException | Error exception) {
+			throw exception;
+		} catch (Throwable throwable) {
+			throw new IllegalStateException(throwable);
+		}
+	}
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.async;
+
+import com.thirtyai.nezha.cache.MultipleCache;
+import com.thirtyai.nezha.cache.MultipleCacheType;
+import com.thirtyai.nezha.cache.redis.RedisCache;
+import lombok.Getter;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.data.redis.connection.ReactiveRedisConnection;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * async multiple cache
+ * non blocking facade of a {@link MultipleCache}: the caffeine and hot key tiers are read in memory, the redis tier
+ * through the reactive redis connection, without one the blocking redis calls are offloaded to the bounded elastic scheduler.
+ * an empty mono is a miss, a wrapped null is the null sentinel of negative caching.
+ *
+ * @author kyleju
+ */
+public class AsyncMultipleCache {
+	@Getter
+	private final MultipleCache multipleCache;
+	@Nullable
+	private final ReactiveRedisConnectionFactory reactiveRedisConnectionFactory;
+	@Nullable
+	private final RedisCache redisCache;
+	private final boolean negativeCaching;
+	/**
+	 * loads in flight of the keys, shared by concurrent subscribers
+	 */
+	private final Map<Object, Mono<Object>> loading = new ConcurrentHashMap<>();
+
+	public AsyncMultipleCache(MultipleCache multipleCache, @Nullable ReactiveRedisConnectionFactory reactiveRedisConnectionFactory) {
+		this.multipleCache = multipleCache;
+		this.redisCache = multipleCache.getRedis() instanceof RedisCache ? (RedisCache) multipleCache.getRedis() : null;
+		this.reactiveRedisConnectionFactory = redisCache == null ? null : reactiveRedisConnectionFactory;
+		this.negativeCaching = multipleCache.getCacheItem().getNegativeTtlSeconds() > 0;
+	}
+
+	public String getName() {
+		return multipleCache.getName();
+	}
+
+	/**
+	 * get
+	 *
+	 * @param key key
+	 * @return value, empty when missing
+	 */
+	public Mono<Cache.ValueWrapper> get(@NonNull Object key) {
+		return Mono.defer(() -> {
+			if (multipleCache.isRejected(key)) {
+				return Mono.empty();
+			}
+			Cache.ValueWrapper local = localGet(key);
+			if (!multipleCache.isMiss(local)) {
+				return Mono.just(local);
+			}
+			Cache redis = multipleCache.getRedis();
+			if (redis == null) {
+				return Mono.empty();
+			}
+			if (reactiveRedisConnectionFactory == null) {
+				return blocking(() -> {
+					Cache.ValueWrapper valueWrapper = redis.get(key);
+					if (multipleCache.isMiss(valueWrapper)) {
+						return null;
+					}
+					localPut(key, valueWrapper.get());
+					return valueWrapper;
+				});
+			}
+			return withConnection(connection -> connection.stringCommands().get(ByteBuffer.wrap(redisCache.toRawKey(key))))
+				.map(rawValue -> {
+					Cache.ValueWrapper valueWrapper = redisCache.fromRawValue(toBytes(rawValue));
+					redisCache.getStats().getHits().increment();
+					if (valueWrapper != null) {
+						localPut(key, valueWrapper.get());
+					}
+					return Optional.ofNullable(valueWrapper);
+				})
+				.doOnSuccess(hit -> {
+					if (hit == null) {
+						redisCache.getStats().getMisses().increment();
+					}
+				})
+				.flatMap(Mono::justOrEmpty);
+		});
+	}
+
+	/**
+	 * get or load, the loaded value is put to the cache, concurrent loads of the key share one subscription
+	 *
+	 * @param key    key
+	 * @param loader value loader
+	 * @param <T>    T
+	 * @return value, empty when the value is null, a key rejected by the bloom filter is loaded and learned when found
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Mono<T> get(@NonNull Object key, @NonNull Supplier<Mono<T>> loader) {
+		return get(key).map(Optional::of).defaultIfEmpty(Optional.empty()).flatMap(hit -> {
+			if (hit.isPresent()) {
+				return Mono.justOrEmpty((T) hit.get().get());
+			}
+			return (Mono<T>) loading.computeIfAbsent(key, loadingKey -> Mono.defer(loader::get).cast(Object.class)
+				.flatMap(value -> put(loadingKey, value).thenReturn(value))
+				.switchIfEmpty(negativeCaching ? put(loadingKey, null).then(Mono.empty()) : Mono.empty())
+				.doFinally(signal -> loading.remove(loadingKey))
+				.cache());
+		});
+	}
+
+	/**
+	 * put
+	 *
+	 * @param key   key
+	 * @param value value, null only in negative caching
+	 * @return complete when written
+	 */
+	public Mono<Void> put(@NonNull Object key, @Nullable Object value) {
+		return Mono.defer(() -> {
+			if (multipleCache.getRedis() == null || reactiveRedisConnectionFactory == null) {
+				return blocking(() -> {
+					multipleCache.put(key, value);
+					return null;
+				}).then();
+			}
+			byte[] rawValue = redisCache.toRawValue(value);
+			Duration ttl = redisCache.ttlFor(value);
+			Expiration expiration = ttl.isZero() || ttl.isNegative() ? Expiration.persistent() : Expiration.from(ttl.toMillis(), TimeUnit.MILLISECONDS);
+			return withConnection(connection -> connection.stringCommands()
+				.set(ByteBuffer.wrap(redisCache.toRawKey(key)), ByteBuffer.wrap(rawValue), expiration, RedisStringCommands.SetOption.upsert()))
+				.doOnSuccess(done -> {
+					redisCache.getStats().getPuts().increment();
+					multipleCache.redisWritten(key, value);
+				})
+				.then();
+		});
+	}
+
+	/**
+	 * evict
+	 *
+	 * @param key key
+	 * @return complete when evicted
+	 */
+	public Mono<Void> evict(@NonNull Object key) {
+		return Mono.defer(() -> {
+			if (multipleCache.getRedis() == null || reactiveRedisConnectionFactory == null) {
+				return blocking(() -> {
+					multipleCache.evict(key);
+					return null;
+				}).then();
+			}
+			return withConnection(connection -> connection.keyCommands().del(ByteBuffer.wrap(redisCache.toRawKey(key))))
+				.doOnSuccess(deleted -> {
+					redisCache.getStats().getEvictions().increment();
+					multipleCache.redisEvicted(key);
+				})
+				.then();
+		});
+	}
+
+	/**
+	 * bulk get, local hits first, the rest with one MGET
+	 *
+	 * @param keys keys
+	 * @return value, the keys without value are absent
+	 */
+	public Mono<Map<Object, Object>> getAll(@NonNull Collection<?> keys) {
+		return Mono.defer(() -> {
+			Map<Object, Object> result = new HashMap<>(keys.size());
+			Set<Object> missingKeys = new LinkedHashSet<>(keys.size());
+			for (Object key : keys) {
+				if (key == null || multipleCache.isRejected(key)) {
+					continue;
+				}
+				Cache.ValueWrapper local = localGet(key);
+				if (multipleCache.isMiss(local)) {
+					missingKeys.add(key);
+				} else if (local.get() != null) {
+					result.put(key, local.get());
+				}
+			}
+			if (missingKeys.isEmpty() || multipleCache.getRedis() == null) {
+				return Mono.just(result);
+			}
+			if (reactiveRedisConnectionFactory == null) {
+				return blocking(() -> {
+					result.putAll(multipleCache.getAll(missingKeys, null));
+					return result;
+				});
+			}
+			List<Object> keyList = new ArrayList<>(missingKeys);
+			List<ByteBuffer> rawKeys = new ArrayList<>(keyList.size());
+			keyList.forEach(key -> rawKeys.add(ByteBuffer.wrap(redisCache.toRawKey(key))));
+			return withConnection(connection -> connection.stringCommands().mGet(rawKeys)).map(rawValues -> {
+				int hits = 0;
+				for (int i = 0; i < rawValues.size() && i < keyList.size(); i++) {
+					Cache.ValueWrapper valueWrapper = rawValues.get(i).hasRemaining() ? redisCache.fromRawValue(toBytes(rawValues.get(i))) : null;
+					if (!multipleCache.isMiss(valueWrapper)) {
+						if (valueWrapper.get() != null) {
+							result.put(keyList.get(i), valueWrapper.get());
+						}
+						localPut(keyList.get(i), valueWrapper.get());
+						hits++;
+					}
+				}
+				redisCache.getStats().getHits().add(hits);
+				redisCache.getStats().getMisses().add(keyList.size() - hits);
+				return result;
+			}).defaultIfEmpty(result);
+		});
+	}
+
+	/**
+	 * get as future
+	 *
+	 * @param key key
+	 * @return value, completed with null when missing
+	 */
+	public CompletableFuture<Cache.ValueWrapper> getFuture(@NonNull Object key) {
+		return get(key).toFuture();
+	}
+
+	/**
+	 * get or load as future
+	 *
+	 * @param key    key
+	 * @param loader value loader
+	 * @param <T>    T
+	 * @return value
+	 */
+	public <T> CompletableFuture<T> getFuture(@NonNull Object key, @NonNull Supplier<CompletableFuture<T>> loader) {
+		return get(key, () -> Mono.fromFuture(loader.get())).toFuture();
+	}
+
+	/**
+	 * put as future
+	 *
+	 * @param key   key
+	 * @param value value
+	 * @return future
+	 */
+	public CompletableFuture<Void> putFuture(@NonNull Object key, @Nullable Object value) {
+		return put(key, value).toFuture();
+	}
+
+	/**
+	 * evict as future
+	 *
+	 * @param key key
+	 * @return future
+	 */
+	public CompletableFuture<Void> evictFuture(@NonNull Object key) {
+		return evict(key).toFuture();
+	}
+
+	/**
+	 * bulk get as future
+	 *
+	 * @param keys keys
+	 * @return future
+	 */
+	public CompletableFuture<Map<Object, Object>> getAllFuture(@NonNull Collection<?> keys) {
+		return getAll(keys).toFuture();
+	}
+
+	private <R> Mono<R> withConnection(Function<ReactiveRedisConnection, Mono<R>> command) {
+		return Mono.using(reactiveRedisConnectionFactory::getReactiveConnection, command, ReactiveRedisConnection::close);
+	}
+
+	private static <R> Mono<R> blocking(Supplier<R> supplier) {
+		return Mono.fromSupplier(supplier).subscribeOn(Schedulers.boundedElastic());
+	}
+
+	@Nullable
+	private Cache.ValueWrapper localGet(Object key) {
+		Cache localTier = multipleCache.getLocalTier();
+		return localTier == null ? null : localTier.get(key);
+	}
+
+	/**
+	 * a redis value is kept in the caffeine tier, the hot key tier is only filled by the blocking reads
+	 */
+	private void localPut(Object key, @Nullable Object value) {
+		if (!MultipleCacheType.CaffeineRedis.equals(multipleCache.getMultipleCacheType())) {
+			return;
+		}
+		Cache caffeine = multipleCache.getCaffeine();
+		if (value != null || (caffeine instanceof CaffeineCache && ((CaffeineCache) caffeine).isAllowNullValues())) {
+			caffeine.put(key, value);
+		}
+	}
+
+	private static byte[] toBytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+}
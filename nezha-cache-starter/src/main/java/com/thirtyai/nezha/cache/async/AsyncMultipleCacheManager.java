@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.async;
+
+import cn.hutool.core.map.MapUtil;
+import com.thirtyai.nezha.cache.MultipleCache;
+import com.thirtyai.nezha.cache.MultipleCacheManager;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+
+import java.util.Map;
+
+/**
+ * async multiple cache manager
+ * async facades of the caches of {@link MultipleCacheManager}, created once per cache.
+ *
+ * @author kyleju
+ */
+public class AsyncMultipleCacheManager {
+	private final MultipleCacheManager multipleCacheManager;
+	@Nullable
+	private final ReactiveRedisConnectionFactory reactiveRedisConnectionFactory;
+	private final Map<MultipleCache, AsyncMultipleCache> asyncCaches = MapUtil.newConcurrentHashMap();
+
+	public AsyncMultipleCacheManager(MultipleCacheManager multipleCacheManager, @Nullable ReactiveRedisConnectionFactory reactiveRedisConnectionFactory) {
+		this.multipleCacheManager = multipleCacheManager;
+		this.reactiveRedisConnectionFactory = reactiveRedisConnectionFactory;
+	}
+
+	/**
+	 * get async cache, see {@link MultipleCacheManager#getCache(String)}
+	 *
+	 * @param name cache name
+	 * @return value, null when no cache
+	 */
+	@Nullable
+	public AsyncMultipleCache getCache(@NonNull String name) {
+		MultipleCache multipleCache = multipleCacheManager.getCache(name);
+		if (multipleCache == null) {
+			return null;
+		}
+		return asyncCaches.computeIfAbsent(multipleCache, cache -> new AsyncMultipleCache(cache, reactiveRedisConnectionFactory));
+	}
+}
@@ -15,17 +15,28 @@
  */
 package com.thirtyai.nezha.cache.config;
 
+import cn.hutool.core.util.StrUtil;
 import com.thirtyai.nezha.cache.MultipleCacheManager;
+import com.thirtyai.nezha.cache.async.AsyncCacheableAspect;
+import com.thirtyai.nezha.cache.async.AsyncMultipleCacheManager;
 import com.thirtyai.nezha.cache.message.CacheKeyMessagePubSub;
 import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
 import com.thirtyai.nezha.cache.refresh.CacheKeyValueRefreshSupport;
 import com.thirtyai.nezha.cache.refresh.ICacheKeyValueRefreshSupport;
+import com.thirtyai.nezha.cache.support.CacheKeyBloomFilterSeeder;
+import com.thirtyai.nezha.cache.support.ICacheKeySource;
+import com.thirtyai.nezha.cache.tracking.ClientTrackingInvalidator;
+import com.thirtyai.nezha.cache.tracking.RespClientTrackingConnection;
+import com.thirtyai.nezha.cache.warmup.MultipleCacheWarmer;
 import com.thirtyai.nezha.redis.operator.RedisOperator;
+import com.thirtyai.nezha.redis.serializer.RedisValueSerializerRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizer;
 import org.springframework.boot.autoconfigure.cache.CacheManagerCustomizers;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.Cache;
 import org.springframework.cache.annotation.EnableCaching;
@@ -34,9 +45,12 @@ import org.springframework.cache.interceptor.SimpleCacheErrorHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.net.URI;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -49,11 +63,16 @@ import java.util.List;
 @EnableConfigurationProperties(NezhaMultipleCacheProperties.class)
 @RequiredArgsConstructor
 public class NezhaMultipleCacheConfiguration {
+	private static final int CLIENT_TRACKING_CONNECT_TIMEOUT_MILLIS = 2000;
 	private final RedisOperator redisOperator;
+	private final RedisValueSerializerRegistry redisValueSerializerRegistry;
 	private final ObjectProvider<List<CacheManagerCustomizer<?>>> customers;
 	private final ThreadPoolTaskExecutor taskExecutor;
 	private final NezhaMultipleCacheProperties nezhaMultipleCacheProperties;
 	private final ObjectProvider<RedisConnectionFactory> redisConnectionFactoryObjectProvider;
+	private final ObjectProvider<RedisProperties> redisPropertiesObjectProvider;
+	private final ObjectProvider<ClientTrackingInvalidator> clientTrackingInvalidatorObjectProvider;
+	private final ObjectProvider<ReactiveRedisConnectionFactory> reactiveRedisConnectionFactoryObjectProvider;
 
 	/**
 	 * cache key message pub sub, for Clear, Evict Caches
@@ -62,7 +81,7 @@ public class NezhaMultipleCacheConfiguration {
 	 */
 	@Bean
 	public CacheKeyMessagePubSub cacheKeyMessagePubSub() {
-		return new CacheKeyMessagePubSub(redisOperator);
+		return new CacheKeyMessagePubSub(redisOperator, nezhaMultipleCacheProperties);
 	}
 
 	/**
@@ -84,15 +103,95 @@ public class NezhaMultipleCacheConfiguration {
 	@Primary
 	public MultipleCacheManager cacheManager() {
 		CacheKeyMessagePubSub cacheKeyMessagePubSub = cacheKeyMessagePubSub();
-		MultipleCacheManager multipleCacheManager = new MultipleCacheManager(nezhaMultipleCacheProperties, cacheKeyMessagePubSub, redisConnectionFactoryObjectProvider, redisOperator);
+		MultipleCacheManager multipleCacheManager = new MultipleCacheManager(nezhaMultipleCacheProperties, cacheKeyMessagePubSub, redisConnectionFactoryObjectProvider, redisOperator, redisValueSerializerRegistry);
 		cacheKeyMessagePubSub.setMultipleCacheManager(multipleCacheManager);
+		multipleCacheManager.setClientTrackingInvalidator(clientTrackingInvalidatorObjectProvider.getIfAvailable());
 		cacheManagerCustomizers().customize(multipleCacheManager);
 		return multipleCacheManager;
 	}
 
+	/**
+	 * redis client tracking invalidator for caffeine redis caches, connects to the configured redis host.
+	 * the tracking connection is a plain tcp connection to a standalone redis, ssl, sentinel and cluster setups fail on startup.
+	 *
+	 * @return bean {@link ClientTrackingInvalidator}
+	 */
+	@Bean
+	@ConditionalOnProperty(prefix = "nezha.cache", name = "coherence-mode", havingValue = "ClientTracking")
+	public ClientTrackingInvalidator clientTrackingInvalidator() {
+		RedisProperties redisProperties = redisPropertiesObjectProvider.getIfAvailable(RedisProperties::new);
+		if (redisProperties.isSsl() || StrUtil.startWithIgnoreCase(redisProperties.getUrl(), "rediss:")
+			|| redisProperties.getSentinel() != null || redisProperties.getCluster() != null) {
+			throw new IllegalStateException("nezha.cache.coherence-mode ClientTracking supports a standalone redis without ssl only, use PubSub for ssl, sentinel or cluster.");
+		}
+		String host = redisProperties.getHost();
+		int port = redisProperties.getPort();
+		String password = redisProperties.getPassword();
+		if (StrUtil.isNotBlank(redisProperties.getUrl())) {
+			URI uri = URI.create(redisProperties.getUrl());
+			host = uri.getHost();
+			port = uri.getPort() > 0 ? uri.getPort() : port;
+			if (StrUtil.contains(uri.getUserInfo(), StrUtil.COLON)) {
+				password = StrUtil.subAfter(uri.getUserInfo(), StrUtil.COLON, false);
+			}
+		}
+		int connectTimeoutMillis = redisProperties.getTimeout() == null ? CLIENT_TRACKING_CONNECT_TIMEOUT_MILLIS : (int) redisProperties.getTimeout().toMillis();
+		return new ClientTrackingInvalidator(new RespClientTrackingConnection(host, port, password, connectTimeoutMillis,
+			nezhaMultipleCacheProperties.getClientTrackingHeartbeatMillis(), nezhaMultipleCacheProperties.getClientTrackingReconnectMillis()));
+	}
+
+	/**
+	 * caffeine tier warm up on startup, the context is ready after the warm up or its time budget
+	 *
+	 * @return bean {@link MultipleCacheWarmer}
+	 */
+	@Bean
+	public MultipleCacheWarmer multipleCacheWarmer() {
+		return new MultipleCacheWarmer(cacheManager(), nezhaMultipleCacheProperties, redisOperator.getRedisTemplate(), redisValueSerializerRegistry);
+	}
+
+	/**
+	 * seeds the cache bloom filters from the {@link ICacheKeySource} beans on startup
+	 *
+	 * @param cacheKeySources cache key sources
+	 * @return bean {@link CacheKeyBloomFilterSeeder}
+	 */
+	@Bean
+	public CacheKeyBloomFilterSeeder cacheKeyBloomFilterSeeder(ObjectProvider<List<ICacheKeySource>> cacheKeySources) {
+		return new CacheKeyBloomFilterSeeder(cacheManager(), cacheKeySources.getIfAvailable(Collections::emptyList));
+	}
+
+	/**
+	 * non blocking facades of the caches, backed by the reactive redis connection when present
+	 *
+	 * @return bean {@link AsyncMultipleCacheManager}
+	 */
+	@Bean
+	public AsyncMultipleCacheManager asyncMultipleCacheManager() {
+		return new AsyncMultipleCacheManager(cacheManager(), reactiveRedisConnectionFactoryObjectProvider.getIfAvailable());
+	}
+
+	/**
+	 * {@link com.thirtyai.nezha.cache.async.AsyncCacheable} aspect, declared here as the reactive services don't scan the nezha packages
+	 *
+	 * @return bean {@link AsyncCacheableAspect}
+	 */
+	@Bean
+	public AsyncCacheableAspect asyncCacheableAspect() {
+		return new AsyncCacheableAspect(asyncMultipleCacheManager());
+	}
+
+	/**
+	 * read driven refresh ahead support
+	 *
+	 * @return bean {@link ICacheKeyValueRefreshSupport}
+	 */
 	@Bean
 	public ICacheKeyValueRefreshSupport cacheKeyValueRefreshSupport() {
-		return new CacheKeyValueRefreshSupport(cacheManager(), taskExecutor);
+		MultipleCacheManager multipleCacheManager = cacheManager();
+		CacheKeyValueRefreshSupport cacheKeyValueRefreshSupport = new CacheKeyValueRefreshSupport(multipleCacheManager, taskExecutor, nezhaMultipleCacheProperties);
+		multipleCacheManager.setCacheKeyValueRefreshSupport(cacheKeyValueRefreshSupport);
+		return cacheKeyValueRefreshSupport;
 	}
 
 	/**
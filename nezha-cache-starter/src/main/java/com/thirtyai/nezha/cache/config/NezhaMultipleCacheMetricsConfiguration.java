@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.config;
+
+import com.thirtyai.nezha.cache.MultipleCacheManager;
+import com.thirtyai.nezha.cache.metrics.MultipleCacheEndpoint;
+import com.thirtyai.nezha.cache.metrics.MultipleCacheMeterBinder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * nezha multiple cache metrics configuration
+ * micrometer meters and actuator endpoint of the multiple caches, each one only when its classes are present.
+ *
+ * @author kyleju
+ */
+@Configuration
+@AutoConfigureAfter(NezhaMultipleCacheConfiguration.class)
+@ConditionalOnBean(MultipleCacheManager.class)
+public class NezhaMultipleCacheMetricsConfiguration {
+
+	@Configuration
+	@ConditionalOnClass(MeterRegistry.class)
+	static class MultipleCacheMeterConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		public MultipleCacheMeterBinder multipleCacheMeterBinder(MultipleCacheManager multipleCacheManager) {
+			return new MultipleCacheMeterBinder(multipleCacheManager);
+		}
+	}
+
+	@Configuration
+	@ConditionalOnClass({Endpoint.class, ConditionalOnAvailableEndpoint.class})
+	static class MultipleCacheEndpointConfiguration {
+
+		@Bean
+		@ConditionalOnMissingBean
+		@ConditionalOnAvailableEndpoint(endpoint = MultipleCacheEndpoint.class)
+		public MultipleCacheEndpoint multipleCacheEndpoint(MultipleCacheManager multipleCacheManager) {
+			return new MultipleCacheEndpoint(multipleCacheManager);
+		}
+	}
+}
@@ -16,58 +16,228 @@
 package com.thirtyai.nezha.cache.message;
 
 import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.lang.UUID;
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.StrUtil;
 import com.thirtyai.nezha.cache.MultipleCache;
 import com.thirtyai.nezha.cache.MultipleCacheManager;
+import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
 import com.thirtyai.nezha.redis.operator.RedisOperator;
 import com.thirtyai.nezha.redis.pubsub.AbstractPubSub;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * cache message pub sub
+ * the evict and clear operations are buffered for {@code invalidationFlushMillis}, the duplicated keys are merged,
+ * one message per cache carries the keys, a clear replaces the pending evicts of the cache.
+ * every message is stamped with the origin node id, the self published messages are skipped, a message of another node
+ * always evicts, the wall clocks of the nodes are never compared.
  *
  * @author kyleju
  */
 @Slf4j
-public class CacheKeyMessagePubSub extends AbstractPubSub<CacheKeyOperateMessage> {
+public class CacheKeyMessagePubSub extends AbstractPubSub<CacheKeyOperateMessage> implements DisposableBean {
 	private static final String CACHE_KEY_MESSAGE_TOPIC = "nezha_cache_key_message_pub_sub";
+	private static final String FLUSHER_THREAD_PREFIX = "nezha-cache-invalidation-flusher-";
 	@Setter
 	@Getter
 	private MultipleCacheManager multipleCacheManager;
+	/**
+	 * node id of this publisher
+	 */
+	@Getter
+	private final String nodeId = UUID.fastUUID().toString(true);
+
+	private final long flushMillis;
+	private final int batchMaxKeys;
+	private final boolean suppressSelfEcho;
+	/**
+	 * pending invalidations of cache name
+	 */
+	private final Map<String, PendingInvalidation> pendingInvalidations = MapUtil.newConcurrentHashMap();
+	private final AtomicInteger pendingKeys = new AtomicInteger();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+	private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+	private final ScheduledExecutorService flusher;
 
-	private CacheKeyMessagePubSub(String topic, RedisOperator redisOperator) {
+	private CacheKeyMessagePubSub(String topic, RedisOperator redisOperator, long flushMillis, int batchMaxKeys, boolean suppressSelfEcho) {
 		super(topic, redisOperator);
+		this.flushMillis = flushMillis;
+		this.batchMaxKeys = Math.max(1, batchMaxKeys);
+		this.suppressSelfEcho = suppressSelfEcho;
+		this.flusher = flushMillis > 0 ? Executors.newSingleThreadScheduledExecutor(ThreadUtil.newNamedThreadFactory(FLUSHER_THREAD_PREFIX, true)) : null;
 	}
 
 	public CacheKeyMessagePubSub(RedisOperator redisOperator) {
-		this(CACHE_KEY_MESSAGE_TOPIC, redisOperator);
+		this(CACHE_KEY_MESSAGE_TOPIC, redisOperator, 0L, 1, true);
+	}
+
+	public CacheKeyMessagePubSub(RedisOperator redisOperator, NezhaMultipleCacheProperties multipleCacheProperties) {
+		this(CACHE_KEY_MESSAGE_TOPIC, redisOperator, multipleCacheProperties.getInvalidationFlushMillis(), multipleCacheProperties.getInvalidationBatchMaxKeys(),
+			multipleCacheProperties.isInvalidationSuppressSelfEcho());
+	}
+
+	/**
+	 * evict the key of the cache on all nodes
+	 *
+	 * @param cacheName cache name
+	 * @param key       key
+	 */
+	public void evict(String cacheName, String key) {
+		if (flusher == null) {
+			publish(stamp(new CacheKeyOperateMessage(cacheName, key, OperateMessageType.Evict)));
+			return;
+		}
+		pendingInvalidations.compute(cacheName, (name, pending) -> {
+			PendingInvalidation invalidation = pending == null ? new PendingInvalidation() : pending;
+			if (!invalidation.clear && invalidation.keys.add(key)) {
+				pendingKeys.incrementAndGet();
+			}
+			return invalidation;
+		});
+		scheduleFlush(pendingKeys.get() >= batchMaxKeys);
+	}
+
+	/**
+	 * clear the cache on all nodes
+	 *
+	 * @param cacheName cache name
+	 */
+	public void clear(String cacheName) {
+		if (flusher == null) {
+			publish(stamp(new CacheKeyOperateMessage(cacheName, null, OperateMessageType.Clear)));
+			return;
+		}
+		pendingInvalidations.compute(cacheName, (name, pending) -> {
+			PendingInvalidation invalidation = pending == null ? new PendingInvalidation() : pending;
+			invalidation.clear = true;
+			pendingKeys.addAndGet(-invalidation.keys.size());
+			invalidation.keys.clear();
+			return invalidation;
+		});
+		scheduleFlush(false);
+	}
+
+	/**
+	 * publish all pending invalidations
+	 */
+	public void flush() {
+		flushScheduled.set(false);
+		flushRequested.set(false);
+		for (String cacheName : pendingInvalidations.keySet()) {
+			PendingInvalidation invalidation = pendingInvalidations.remove(cacheName);
+			if (invalidation == null) {
+				continue;
+			}
+			// keys added after the remove go to a new pending invalidation and stay counted
+			pendingKeys.addAndGet(-invalidation.keys.size());
+			try {
+				if (invalidation.clear) {
+					publish(stamp(new CacheKeyOperateMessage(cacheName, null, OperateMessageType.Clear)));
+				} else {
+					List<String> keys = new ArrayList<>(invalidation.keys);
+					for (int from = 0; from < keys.size(); from += batchMaxKeys) {
+						CacheKeyOperateMessage message = new CacheKeyOperateMessage(cacheName, null, OperateMessageType.Evict);
+						message.setKeys(keys.subList(from, Math.min(from + batchMaxKeys, keys.size())));
+						publish(stamp(message));
+					}
+				}
+			} catch (Exception exception) {
+				log.error("{}[{}]", ExceptionUtil.getMessage(exception), cacheName);
+			}
+		}
 	}
 
 	@Override
 	public void onMessage(CacheKeyOperateMessage message) {
 		if (message != null && StrUtil.isNotBlank(message.getCacheName()) && multipleCacheManager != null) {
+			if (suppressSelfEcho && nodeId.equals(message.getOrigin())) {
+				return;
+			}
 
 			MultipleCache multipleCache = multipleCacheManager.getCache(message.getCacheName());
-			if (multipleCache != null) {
+			if (multipleCache != null && message.getOperateMessageType().equals(OperateMessageType.Evict)) {
+				// the key may be created by the other node
+				multipleCache.addBloomFilterKey(message.getKey());
+				if (message.getKeys() != null) {
+					message.getKeys().forEach(multipleCache::addBloomFilterKey);
+				}
+			}
+			Cache localTier = multipleCache == null ? null : multipleCache.getLocalTier();
+			if (localTier != null) {
 				if (message.getOperateMessageType().equals(OperateMessageType.Clear)) {
-					if (multipleCache.getCaffeine() != null) {
-						multipleCache.getCaffeine().clear();
-					}
+					multipleCache.getInvalidationsReceived().increment();
+					localTier.clear();
 				}
 
 				if (message.getOperateMessageType().equals(OperateMessageType.Evict)) {
-					if (multipleCache.getCaffeine() != null) {
-						multipleCache.getCaffeine().evict(message.getKey());
+					if (message.getKey() != null) {
+						multipleCache.getInvalidationsReceived().increment();
+						localTier.evict(message.getKey());
+					}
+					if (message.getKeys() != null) {
+						multipleCache.getInvalidationsReceived().add(message.getKeys().size());
+						message.getKeys().forEach(localTier::evict);
 					}
 				}
 			}
 		}
 	}
 
+	private CacheKeyOperateMessage stamp(CacheKeyOperateMessage message) {
+		message.setOrigin(nodeId);
+		return message;
+	}
+
 	@Override
 	public void onError(Exception exception) {
 		log.error(ExceptionUtil.getMessage(exception));
 	}
+
+	@Override
+	public void destroy() {
+		if (flusher != null) {
+			flusher.shutdownNow();
+			flush();
+		}
+	}
+
+	private void scheduleFlush(boolean immediately) {
+		try {
+			if (immediately) {
+				if (flushRequested.compareAndSet(false, true)) {
+					flusher.execute(this::flush);
+				}
+			} else if (flushScheduled.compareAndSet(false, true)) {
+				flusher.schedule(this::flush, flushMillis, TimeUnit.MILLISECONDS);
+			}
+		} catch (RejectedExecutionException exception) {
+			flush();
+		}
+	}
+
+	/**
+	 * pending invalidation of one cache
+	 */
+	private static class PendingInvalidation {
+		private boolean clear = false;
+		private final Set<String> keys = new LinkedHashSet<>();
+	}
 }
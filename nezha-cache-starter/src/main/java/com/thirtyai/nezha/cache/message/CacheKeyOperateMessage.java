@@ -17,11 +17,12 @@ package com.thirtyai.nezha.cache.message;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
-import lombok.experimental.Accessors;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * Cache key operate message
@@ -31,6 +32,7 @@ import java.io.Serializable;
 @Getter
 @Setter
 @ToString
+@NoArgsConstructor
 @AllArgsConstructor
 public class CacheKeyOperateMessage implements Serializable {
 	/**
@@ -45,5 +47,18 @@ public class CacheKeyOperateMessage implements Serializable {
 	 * operate message type {@link OperateMessageType}
 	 */
 	private OperateMessageType operateMessageType = OperateMessageType.Clear;
+	/**
+	 * batch keys, evict all of them
+	 */
+	private List<String> keys;
+	/**
+	 * origin node id of the publisher
+	 */
+	private String origin;
 
+	public CacheKeyOperateMessage(String cacheName, String key, OperateMessageType operateMessageType) {
+		this.cacheName = cacheName;
+		this.key = key;
+		this.operateMessageType = operateMessageType;
+	}
 }
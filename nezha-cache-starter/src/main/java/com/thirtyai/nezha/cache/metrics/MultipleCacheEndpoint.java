@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.metrics;
+
+import com.thirtyai.nezha.cache.MultipleCache;
+import com.thirtyai.nezha.cache.MultipleCacheManager;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.lang.Nullable;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * multiple cache endpoint
+ * per tier statistics of the created caches, /actuator/nezhacaches and /actuator/nezhacaches/{name}.
+ *
+ * @author kyleju
+ */
+@Endpoint(id = "nezhacaches")
+public class MultipleCacheEndpoint {
+	private final MultipleCacheManager multipleCacheManager;
+
+	public MultipleCacheEndpoint(MultipleCacheManager multipleCacheManager) {
+		this.multipleCacheManager = multipleCacheManager;
+	}
+
+	@ReadOperation
+	public Map<String, Map<String, Object>> caches() {
+		Map<String, Map<String, Object>> result = new TreeMap<>();
+		for (String name : multipleCacheManager.getCacheNames()) {
+			MultipleCache multipleCache = multipleCacheManager.getCache(name);
+			if (multipleCache != null) {
+				result.put(multipleCache.getName(), MultipleCacheStatistics.snapshot(multipleCache));
+			}
+		}
+		return result;
+	}
+
+	@Nullable
+	@ReadOperation
+	public Map<String, Object> cache(@Selector String name) {
+		if (!multipleCacheManager.getCacheNames().contains(name.toLowerCase())) {
+			return null;
+		}
+		MultipleCache multipleCache = multipleCacheManager.getCache(name);
+		return multipleCache == null ? null : MultipleCacheStatistics.snapshot(multipleCache);
+	}
+}
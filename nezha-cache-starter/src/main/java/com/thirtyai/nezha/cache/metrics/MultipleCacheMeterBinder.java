@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.metrics;
+
+import com.thirtyai.nezha.cache.MultipleCache;
+import com.thirtyai.nezha.cache.MultipleCacheManager;
+import com.thirtyai.nezha.cache.redis.RedisCache;
+import com.thirtyai.nezha.cache.redis.RedisCacheLoadLease;
+import com.thirtyai.nezha.cache.redis.RedisCacheStats;
+import com.thirtyai.nezha.cache.redis.RedisCacheValueCompressor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.lang.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * multiple cache meter binder
+ * l1 caffeine tier is bound by micrometer caffeine metrics with tag tier=l1, l2 redis tier counters and timers are tagged tier=l2,
+ * the caches created after binding are bound by the cache listener of the manager.
+ *
+ * @author kyleju
+ */
+public class MultipleCacheMeterBinder implements MeterBinder {
+	private static final String TAG_CACHE = "cache";
+	private static final String TAG_TIER = "tier";
+
+	private final MultipleCacheManager multipleCacheManager;
+
+	public MultipleCacheMeterBinder(MultipleCacheManager multipleCacheManager) {
+		this.multipleCacheManager = multipleCacheManager;
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		multipleCacheManager.addCacheListener(multipleCache -> bind(registry, multipleCache));
+	}
+
+	private void bind(MeterRegistry registry, MultipleCache multipleCache) {
+		Tags tags = Tags.of(TAG_CACHE, multipleCache.getName());
+		Gauge.builder("cache.invalidations.received", multipleCache.getInvalidationsReceived(), LongAdder::doubleValue)
+			.tags(tags).description("invalidation messages received by the cache").register(registry);
+		counter(registry, "cache.soft.reloads", multipleCache.getSoftReloads(), tags);
+		if (multipleCache.getHotKeyCache() != null) {
+			counter(registry, "cache.hot.key.promotions", multipleCache.getHotKeyPromotions(), tags);
+			gauge(registry, "cache.hot.keys", multipleCache.getHotKeyCache(), hotKeyCache -> hotKeyCache.getNativeCache().estimatedSize(), tags);
+		}
+		if (multipleCache.getCaffeine() instanceof CaffeineCache) {
+			CaffeineCache caffeineCache = (CaffeineCache) multipleCache.getCaffeine();
+			CaffeineCacheMetrics.monitor(registry, caffeineCache.getNativeCache(), multipleCache.getName(), Tags.of(Tag.of(TAG_TIER, "l1")));
+		}
+		if (multipleCache.getRedis() instanceof RedisCache) {
+			bindRedis(registry, (RedisCache) multipleCache.getRedis(), tags.and(TAG_TIER, "l2"));
+		}
+	}
+
+	private void bindRedis(MeterRegistry registry, RedisCache redisCache, Tags tags) {
+		RedisCacheStats stats = redisCache.getStats();
+		counter(registry, "cache.gets", stats.getHits(), tags.and("result", "hit"));
+		counter(registry, "cache.gets", stats.getMisses(), tags.and("result", "miss"));
+		counter(registry, "cache.puts", stats.getPuts(), tags);
+		counter(registry, "cache.evictions", stats.getEvictions(), tags);
+		FunctionTimer.builder("cache.redis.load", stats, s -> s.getLoadSuccesses().sum() + s.getLoadFailures().sum(), s -> s.getLoadNanos().doubleValue(), TimeUnit.NANOSECONDS)
+			.tags(tags).description("loads of the redis tier").register(registry);
+		counter(registry, "cache.redis.load.failures", stats.getLoadFailures(), tags);
+		FunctionTimer.builder("cache.redis.round.trips", stats, s -> s.getRoundTrips().sum(), s -> s.getRoundTripNanos().doubleValue(), TimeUnit.NANOSECONDS)
+			.tags(tags).description("redis round trips of the cache").register(registry);
+		RedisCacheLoadLease loadLease = redisCache.getLoadLease();
+		if (loadLease != null) {
+			counter(registry, "cache.load.lease", loadLease.getWins(), tags.and("result", "win"));
+			counter(registry, "cache.load.lease", loadLease.getWaits(), tags.and("result", "wait"));
+			counter(registry, "cache.load.lease", loadLease.getFallbacks(), tags.and("result", "fallback"));
+		}
+		RedisCacheValueCompressor compressor = redisCache.getCompressor();
+		if (compressor.getThresholdBytes() >= 0) {
+			counter(registry, "cache.compressions", compressor.getCompressedCount(), tags);
+			counter(registry, "cache.decompressions", compressor.getDecompressedCount(), tags);
+			gauge(registry, "cache.compression.ratio", compressor, RedisCacheValueCompressor::getCompressionRatio, tags);
+		}
+	}
+
+	private static void counter(MeterRegistry registry, String name, LongAdder adder, Tags tags) {
+		FunctionCounter.builder(name, adder, LongAdder::doubleValue).tags(tags).register(registry);
+	}
+
+	private static <T> void gauge(MeterRegistry registry, String name, T object, ToDoubleFunction<T> function, Tags tags) {
+		Gauge.builder(name, object, function).tags(tags).register(registry);
+	}
+}
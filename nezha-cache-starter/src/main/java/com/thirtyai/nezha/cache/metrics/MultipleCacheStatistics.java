@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.metrics;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.thirtyai.nezha.cache.MultipleCache;
+import com.thirtyai.nezha.cache.redis.RedisCache;
+import com.thirtyai.nezha.cache.redis.RedisCacheLoadLease;
+import com.thirtyai.nezha.cache.redis.RedisCacheStats;
+import com.thirtyai.nezha.cache.redis.RedisCacheValueCompressor;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * multiple cache statistics
+ * per tier snapshot of a multiple cache, l1 is caffeine, l2 is redis.
+ *
+ * @author kyleju
+ */
+public final class MultipleCacheStatistics {
+
+	private MultipleCacheStatistics() {
+	}
+
+	/**
+	 * snapshot of the cache
+	 *
+	 * @param multipleCache {@link MultipleCache}
+	 * @return value
+	 */
+	public static Map<String, Object> snapshot(MultipleCache multipleCache) {
+		Map<String, Object> snapshot = new LinkedHashMap<>();
+		snapshot.put("type", multipleCache.getMultipleCacheType());
+		snapshot.put("ttlSeconds", multipleCache.getCacheItem().getTtlSeconds());
+		snapshot.put("invalidationsReceived", multipleCache.getInvalidationsReceived().sum());
+		snapshot.put("softReloads", multipleCache.getSoftReloads().sum());
+		if (multipleCache.getBloomFilter() != null) {
+			snapshot.put("bloomFilterRejections", multipleCache.getBloomFilter().getRejections().sum());
+			snapshot.put("bloomFilterSeeded", multipleCache.getBloomFilter().isSeeded());
+		}
+		if (multipleCache.getHotKeyCache() != null) {
+			Map<String, Object> hotKeys = new LinkedHashMap<>();
+			hotKeys.put("promotions", multipleCache.getHotKeyPromotions().sum());
+			hotKeys.put("estimatedSize", multipleCache.getHotKeyCache().getNativeCache().estimatedSize());
+			snapshot.put("hotKeys", hotKeys);
+		}
+		if (multipleCache.getCaffeine() instanceof CaffeineCache) {
+			snapshot.put("l1", caffeine((CaffeineCache) multipleCache.getCaffeine()));
+		}
+		if (multipleCache.getRedis() instanceof RedisCache) {
+			snapshot.put("l2", redis((RedisCache) multipleCache.getRedis()));
+		}
+		return snapshot;
+	}
+
+	private static Map<String, Object> caffeine(CaffeineCache caffeineCache) {
+		com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = caffeineCache.getNativeCache();
+		CacheStats stats = nativeCache.stats();
+		Map<String, Object> l1 = new LinkedHashMap<>();
+		l1.put("estimatedSize", nativeCache.estimatedSize());
+		nativeCache.policy().eviction().ifPresent(eviction -> {
+			l1.put("maximum", eviction.getMaximum());
+			eviction.weightedSize().ifPresent(weightedSize -> l1.put("weightedSize", weightedSize));
+		});
+		l1.put("hits", stats.hitCount());
+		l1.put("misses", stats.missCount());
+		l1.put("hitRate", stats.hitRate());
+		l1.put("loads", stats.loadCount());
+		l1.put("loadFailures", stats.loadFailureCount());
+		l1.put("totalLoadNanos", stats.totalLoadTime());
+		l1.put("evictions", stats.evictionCount());
+		l1.put("evictionWeight", stats.evictionWeight());
+		return l1;
+	}
+
+	private static Map<String, Object> redis(RedisCache redisCache) {
+		RedisCacheStats stats = redisCache.getStats();
+		Map<String, Object> l2 = new LinkedHashMap<>();
+		l2.put("hits", stats.getHits().sum());
+		l2.put("misses", stats.getMisses().sum());
+		l2.put("hitRate", stats.hitRate());
+		l2.put("puts", stats.getPuts().sum());
+		l2.put("evictions", stats.getEvictions().sum());
+		l2.put("loads", stats.getLoadSuccesses().sum());
+		l2.put("loadFailures", stats.getLoadFailures().sum());
+		l2.put("totalLoadNanos", stats.getLoadNanos().sum());
+		l2.put("roundTrips", stats.getRoundTrips().sum());
+		l2.put("totalRoundTripNanos", stats.getRoundTripNanos().sum());
+		RedisCacheLoadLease loadLease = redisCache.getLoadLease();
+		if (loadLease != null) {
+			Map<String, Object> lease = new LinkedHashMap<>();
+			lease.put("wins", loadLease.getWins().sum());
+			lease.put("waits", loadLease.getWaits().sum());
+			lease.put("fallbacks", loadLease.getFallbacks().sum());
+			l2.put("loadLease", lease);
+		}
+		RedisCacheValueCompressor compressor = redisCache.getCompressor();
+		if (compressor.getThresholdBytes() >= 0) {
+			Map<String, Object> compression = new LinkedHashMap<>();
+			compression.put("compressed", compressor.getCompressedCount().sum());
+			compression.put("decompressed", compressor.getDecompressedCount().sum());
+			compression.put("ratio", compressor.getCompressionRatio());
+			compression.put("totalCompressNanos", compressor.getCompressNanos().sum());
+			compression.put("totalDecompressNanos", compressor.getDecompressNanos().sum());
+			l2.put("compression", compression);
+		}
+		return l2;
+	}
+}
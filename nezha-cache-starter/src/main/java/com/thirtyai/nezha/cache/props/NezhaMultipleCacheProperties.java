@@ -16,11 +16,14 @@
 package com.thirtyai.nezha.cache.props;
 
 import cn.hutool.core.util.StrUtil;
+import com.thirtyai.nezha.cache.CacheCoherenceMode;
+import com.thirtyai.nezha.cache.CacheWarmUpStrategy;
 import lombok.Data;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.io.File;
 import java.util.List;
 
 /**
@@ -33,13 +36,66 @@ import java.util.List;
 @Getter
 public class NezhaMultipleCacheProperties {
 	/**
-	 * cache max size
+	 * cache max size, for the caffeine caches without their own size or weight limit
 	 */
 	private int cacheMaxSize = -1;
+	/**
+	 * total estimated heap bytes of the caffeine caches without their own size or weight limit,
+	 * shared in proportion to heapBudgetShare, negative means no budget
+	 */
+	private long caffeineHeapBudgetBytes = -1L;
 	/**
 	 * allow null values
 	 */
 	private boolean allowNullValues = false;
+	/**
+	 * record caffeine stats for metrics and the cache endpoint
+	 */
+	private boolean recordStats = true;
+	/**
+	 * auto refresher is dropped when its key is not read for refresherIdleTtlTimes * ttlSeconds
+	 */
+	private int refresherIdleTtlTimes = 2;
+	/**
+	 * caffeine invalidation messages are buffered and merged for flush millis, zero means publish one by one
+	 */
+	private long invalidationFlushMillis = 5L;
+	/**
+	 * max keys of one invalidation message
+	 */
+	private int invalidationBatchMaxKeys = 1000;
+	/**
+	 * skip the invalidation messages published by self, the writer evicts its own caffeine entry directly
+	 */
+	private boolean invalidationSuppressSelfEcho = true;
+	/**
+	 * caffeine tier coherence mode of caffeine redis caches
+	 */
+	private CacheCoherenceMode coherenceMode = CacheCoherenceMode.PubSub;
+	/**
+	 * client tracking connection is probed with PING after idle millis
+	 */
+	private int clientTrackingHeartbeatMillis = 5000;
+	/**
+	 * client tracking reconnect interval millis
+	 */
+	private long clientTrackingReconnectMillis = 1000L;
+	/**
+	 * redis values not less than the bytes are compressed, negative means never
+	 */
+	private int compressThresholdBytes = -1;
+	/**
+	 * deflate level of the compressed values, 1 fastest - 9 smallest
+	 */
+	private int compressLevel = 1;
+	/**
+	 * startup waits for the caffeine warm up at most the millis
+	 */
+	private long warmUpTimeoutMillis = 10000L;
+	/**
+	 * directory of the caffeine warm up snapshot files
+	 */
+	private String warmUpSnapshotDir = System.getProperty("java.io.tmpdir") + File.separator + "nezha-cache";
 	/**
 	 * caffeine cache items
 	 */
@@ -57,6 +113,7 @@ public class NezhaMultipleCacheProperties {
 	public static class CacheItem {
 		private static final int TWO = 2;
 		private static final int FOUR = 4;
+		private static final int HUNDRED = 100;
 		private String name;
 		private int ttlSeconds = 300;
 		private int refreshTriggerSeconds = -1;
@@ -65,6 +122,102 @@ public class NezhaMultipleCacheProperties {
 		 * auto refresh default enabled
 		 */
 		private boolean enabledAutoRefresh = true;
+		/**
+		 * cross node single flight for redis misses, default disabled
+		 */
+		private boolean distributedLoad = false;
+		/**
+		 * distributed load lease expire millis
+		 */
+		private long distributedLoadLeaseMillis = 3000L;
+		/**
+		 * max wait millis for the lease holder's value, then load by self
+		 */
+		private long distributedLoadWaitMillis = 1000L;
+		/**
+		 * poll interval millis while waiting for the lease holder's value
+		 */
+		private long distributedLoadPollMillis = 50L;
+		/**
+		 * redis value serializer name (json, smile, jdk or custom), blank means nezha.redis.serializer
+		 */
+		private String serializer;
+		/**
+		 * redis values not less than the bytes are compressed, null means nezha.cache.compress-threshold-bytes
+		 */
+		private Integer compressThresholdBytes;
+		/**
+		 * caffeine maximum entries, negative means cacheMaxSize or heap budget
+		 */
+		private long maximumSize = -1L;
+		/**
+		 * caffeine maximum estimated heap bytes, takes precedence over maximumSize, negative means disabled
+		 */
+		private long maximumWeightBytes = -1L;
+		/**
+		 * caffeine expire after access seconds, negative means disabled
+		 */
+		private int expireAfterAccessSeconds = -1;
+		/**
+		 * caffeine soft values, collected on memory pressure
+		 */
+		private boolean softValues = false;
+		/**
+		 * caffeine weak values, collected when no longer strongly referenced
+		 */
+		private boolean weakValues = false;
+		/**
+		 * share of caffeineHeapBudgetBytes
+		 */
+		private int heapBudgetShare = 1;
+		/**
+		 * null results are cached as a sentinel for the seconds in caffeine and redis, negative means disabled
+		 */
+		private int negativeTtlSeconds = -1;
+		/**
+		 * the ttl of every entry is shortened by a random part of the percent of ttlSeconds, 0 means disabled
+		 */
+		private int ttlJitterPercent = 0;
+		/**
+		 * entries older than the seconds are served stale while one background reload runs, negative means disabled
+		 */
+		private int softTtlSeconds = -1;
+		/**
+		 * caffeine tier warm up strategy on startup
+		 */
+		private CacheWarmUpStrategy warmUp = CacheWarmUpStrategy.None;
+		/**
+		 * most recently used keys saved on shutdown for the warm up
+		 */
+		private int warmUpMaxKeys = 1000;
+		/**
+		 * reads per hotKeyWindowMillis of a redis cache key promoted to a local caffeine tier, negative means disabled
+		 */
+		private long hotKeyThreshold = -1L;
+		/**
+		 * hot key detection window millis
+		 */
+		private long hotKeyWindowMillis = 1000L;
+		/**
+		 * one of the reads is sampled by the hot key detector
+		 */
+		private int hotKeySampleRate = 1;
+		/**
+		 * local ttl seconds of the promoted hot keys
+		 */
+		private int hotKeyTtlSeconds = 5;
+		/**
+		 * maximum promoted hot keys
+		 */
+		private int hotKeyMaxSize = 1000;
+		/**
+		 * expected keys of the local bloom filter, once seeded by an ICacheKeySource the keys not put are rejected before any lookup, negative means disabled
+		 */
+		private long bloomFilterExpectedInsertions = -1L;
+		/**
+		 * false positive probability of the local bloom filter
+		 */
+		private double bloomFilterFpp = 0.01D;
 
 		public boolean validateSelf() throws Exception {
 			/*
@@ -86,6 +239,41 @@ public class NezhaMultipleCacheProperties {
 					throw new Exception("the refreshTriggerSeconds must greater than 2 * refresherSleepSeconds.");
 				}
 			}
+			if (softValues && weakValues) {
+				throw new Exception("the softValues and weakValues can't be both enabled.");
+			}
+			if (negativeTtlSeconds > ttlSeconds) {
+				throw new Exception("the negativeTtlSeconds must not greater than ttlSeconds.");
+			}
+			if (ttlJitterPercent < 0 || ttlJitterPercent >= HUNDRED) {
+				throw new Exception("the ttlJitterPercent must between 0 and 99.");
+			}
+			if (softTtlSeconds > 0 && (softTtlSeconds >= ttlSeconds || softTtlSeconds * HUNDRED <= ttlSeconds * ttlJitterPercent)) {
+				throw new Exception("the softTtlSeconds must less than ttlSeconds and greater than the jitter of ttlSeconds.");
+			}
+			if (expireAfterAccessSeconds > 0 && (negativeTtlSeconds > 0 || ttlJitterPercent > 0 || softTtlSeconds > 0)) {
+				throw new Exception("the expireAfterAccessSeconds can't be enabled with negativeTtlSeconds, ttlJitterPercent or softTtlSeconds.");
+			}
+			if (expireAfterAccessSeconds > 0 && CacheWarmUpStrategy.Snapshot.equals(warmUp)) {
+				throw new Exception("the expireAfterAccessSeconds can't be enabled with the snapshot warm up.");
+			}
+			if (bloomFilterExpectedInsertions > 0 && (bloomFilterFpp <= 0D || bloomFilterFpp >= 1D)) {
+				throw new Exception("the bloomFilterFpp must between 0 and 1.");
+			}
+			if (hotKeyThreshold > 0 && (hotKeyWindowMillis <= 0 || hotKeyTtlSeconds <= 0 || hotKeyMaxSize <= 0 || hotKeySampleRate <= 0)) {
+				throw new Exception("the hotKeyWindowMillis, hotKeyTtlSeconds, hotKeyMaxSize and hotKeySampleRate must greater than zero.");
+			}
+			if (heapBudgetShare <= 0) {
+				throw new Exception("the heapBudgetShare must greater than zero.");
+			}
+			if (distributedLoad) {
+				if (distributedLoadLeaseMillis <= 0 || distributedLoadPollMillis <= 0) {
+					throw new Exception("the distributedLoadLeaseMillis and distributedLoadPollMillis must greater than zero.");
+				}
+				if (distributedLoadWaitMillis < 0) {
+					throw new Exception("the distributedLoadWaitMillis is less than zero.");
+				}
+			}
 			return true;
 		}
 	}
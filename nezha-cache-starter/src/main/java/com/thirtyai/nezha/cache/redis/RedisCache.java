@@ -15,6 +15,9 @@
  */
 package com.thirtyai.nezha.cache.redis;
 
+import cn.hutool.core.thread.ThreadUtil;
+import com.thirtyai.nezha.cache.support.CacheEntryTtl;
+import com.thirtyai.nezha.cache.support.SingleFlight;
 import org.springframework.cache.support.AbstractValueAdaptingCache;
 import org.springframework.cache.support.NullValue;
 import org.springframework.cache.support.SimpleValueWrapper;
@@ -22,7 +25,15 @@ import org.springframework.core.convert.ConversionFailedException;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.core.convert.TypeDescriptor;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.RedisSystemException;
 import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.util.ByteUtils;
 import org.springframework.lang.Nullable;
@@ -30,13 +41,20 @@ import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.ReflectionUtils;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
 import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
 
 /**
  * redis cache
@@ -47,11 +65,21 @@ import java.util.concurrent.Callable;
 public class RedisCache extends AbstractValueAdaptingCache {
 
 	private static final byte[] BINARY_NULL_VALUE = RedisSerializer.java().serialize(NullValue.INSTANCE);
+	private static final int CLEAR_BATCH_SIZE = 500;
 
 	private final String name;
 	private final RedisCacheWriter cacheWriter;
 	private final RedisCacheConfiguration cacheConfig;
 	private final ConversionService conversionService;
+	private final SingleFlight singleFlight = new SingleFlight();
+	@Nullable
+	private final RedisTemplate<String, Object> redisTemplate;
+	@Nullable
+	private final RedisCacheLoadLease loadLease;
+	private final RedisCacheValueCompressor compressor;
+	private final RedisCacheStats stats = new RedisCacheStats();
+	@Nullable
+	private final CacheEntryTtl entryTtl;
 
 	/**
 	 * Create new {@link org.springframework.data.redis.cache.RedisCache}.
@@ -61,17 +89,53 @@ public class RedisCache extends AbstractValueAdaptingCache {
 	 * @param cacheConfig must not be {@literal null}.
 	 */
 	public RedisCache(String name, RedisCacheWriter cacheWriter, RedisCacheConfiguration cacheConfig) {
+		this(name, cacheWriter, cacheConfig, null, null, new RedisCacheValueCompressor(-1, Deflater.BEST_SPEED));
+	}
+
+	/**
+	 * Create new {@link RedisCache} with bulk operations and cross node load lease.
+	 *
+	 * @param name          must not be {@literal null}.
+	 * @param cacheWriter   must not be {@literal null}.
+	 * @param cacheConfig   must not be {@literal null}.
+	 * @param redisTemplate can be {@literal null}, null means bulk operations fall back to one command per key.
+	 * @param loadLease     can be {@literal null}, null means no cross node single flight.
+	 * @param compressor    must not be {@literal null}, the compressed values are always readable.
+	 */
+	public RedisCache(String name, RedisCacheWriter cacheWriter, RedisCacheConfiguration cacheConfig, @Nullable RedisTemplate<String, Object> redisTemplate,
+					  @Nullable RedisCacheLoadLease loadLease, RedisCacheValueCompressor compressor) {
+		this(name, cacheWriter, cacheConfig, redisTemplate, loadLease, compressor, null);
+	}
+
+	/**
+	 * Create new {@link RedisCache} with per entry ttl.
+	 *
+	 * @param name          must not be {@literal null}.
+	 * @param cacheWriter   must not be {@literal null}.
+	 * @param cacheConfig   must not be {@literal null}.
+	 * @param redisTemplate can be {@literal null}, null means bulk operations fall back to one command per key.
+	 * @param loadLease     can be {@literal null}, null means no cross node single flight.
+	 * @param compressor    must not be {@literal null}, the compressed values are always readable.
+	 * @param entryTtl      can be {@literal null}, jittered ttl and null sentinel ttl of the entries, null means the configured ttl.
+	 */
+	public RedisCache(String name, RedisCacheWriter cacheWriter, RedisCacheConfiguration cacheConfig, @Nullable RedisTemplate<String, Object> redisTemplate,
+					  @Nullable RedisCacheLoadLease loadLease, RedisCacheValueCompressor compressor, @Nullable CacheEntryTtl entryTtl) {
 
 		super(cacheConfig.getAllowCacheNullValues());
 
 		Assert.notNull(name, "Name must not be null!");
 		Assert.notNull(cacheWriter, "CacheWriter must not be null!");
 		Assert.notNull(cacheConfig, "CacheConfig must not be null!");
+		Assert.notNull(compressor, "Compressor must not be null!");
 
 		this.name = name;
 		this.cacheWriter = cacheWriter;
 		this.cacheConfig = cacheConfig;
 		this.conversionService = cacheConfig.getConversionService();
+		this.redisTemplate = redisTemplate;
+		this.loadLease = loadLease;
+		this.compressor = compressor;
+		this.entryTtl = entryTtl;
 	}
 
 	/**
@@ -81,11 +145,15 @@ public class RedisCache extends AbstractValueAdaptingCache {
 	@Override
 	protected Object lookup(Object key) {
 
+		long start = System.nanoTime();
 		byte[] value = cacheWriter.get(name, createAndConvertCacheKey(key));
+		stats.roundTrip(start);
 
 		if (value == null) {
+			stats.getMisses().increment();
 			return null;
 		}
+		stats.getHits().increment();
 
 		return deserializeCacheValue(value);
 	}
@@ -114,7 +182,7 @@ public class RedisCache extends AbstractValueAdaptingCache {
 	 */
 	@Override
 	@SuppressWarnings("unchecked")
-	public synchronized <T> T get(Object key, Callable<T> valueLoader) {
+	public <T> T get(Object key, Callable<T> valueLoader) {
 
 		ValueWrapper result = get(key);
 
@@ -122,8 +190,73 @@ public class RedisCache extends AbstractValueAdaptingCache {
 			return (T) result.get();
 		}
 
-		T value = valueFromLoader(key, valueLoader);
-		put(key, value);
+		String cacheKey = createCacheKey(key);
+		return singleFlight.execute(cacheKey, () -> {
+			ValueWrapper loaded = get(key);
+			if (loaded != null) {
+				return (T) loaded.get();
+			}
+			if (loadLease == null) {
+				return loadAndPut(key, valueLoader);
+			}
+			return leasedLoad(key, cacheKey, valueLoader);
+		});
+	}
+
+	/**
+	 * load with the cross node lease, see {@link RedisCacheLoadLease}
+	 *
+	 * @param key         key
+	 * @param cacheKey    cache key
+	 * @param valueLoader value loader
+	 * @param <T>         T
+	 * @return value
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T leasedLoad(Object key, String cacheKey, Callable<T> valueLoader) {
+		String leaseKey = loadLease.leaseKey(cacheKey);
+		String token = loadLease.newToken();
+		if (loadLease.tryAcquire(leaseKey, token)) {
+			loadLease.getWins().increment();
+			try {
+				ValueWrapper loaded = get(key);
+				if (loaded != null) {
+					return (T) loaded.get();
+				}
+				return loadAndPut(key, valueLoader);
+			} finally {
+				loadLease.release(leaseKey, token);
+			}
+		}
+
+		loadLease.getWaits().increment();
+		long deadline = System.currentTimeMillis() + loadLease.getWaitMillis();
+		while (System.currentTimeMillis() < deadline) {
+			if (!ThreadUtil.sleep(loadLease.getPollMillis())) {
+				break;
+			}
+			ValueWrapper loaded = get(key);
+			if (loaded != null) {
+				return (T) loaded.get();
+			}
+		}
+		loadLease.getFallbacks().increment();
+		return loadAndPut(key, valueLoader);
+	}
+
+	private <T> T loadAndPut(Object key, Callable<T> valueLoader) {
+		long start = System.nanoTime();
+		T value;
+		try {
+			value = valueFromLoader(key, valueLoader);
+			stats.load(start, true);
+		} catch (RuntimeException exception) {
+			stats.load(start, false);
+			throw exception;
+		}
+		if (value != null || isAllowNullValues()) {
+			put(key, value);
+		}
 		return value;
 	}
 
@@ -143,7 +276,10 @@ public class RedisCache extends AbstractValueAdaptingCache {
 				name));
 		}
 
-		cacheWriter.put(name, createAndConvertCacheKey(key), serializeCacheValue(cacheValue), cacheConfig.getTtl());
+		long start = System.nanoTime();
+		cacheWriter.put(name, createAndConvertCacheKey(key), serializeCacheValue(cacheValue), ttlOf(cacheValue));
+		stats.roundTrip(start);
+		stats.getPuts().increment();
 	}
 
 	/**
@@ -160,7 +296,7 @@ public class RedisCache extends AbstractValueAdaptingCache {
 		}
 
 		byte[] result = cacheWriter.putIfAbsent(name, createAndConvertCacheKey(key), serializeCacheValue(cacheValue),
-			cacheConfig.getTtl());
+			ttlOf(cacheValue));
 
 		if (result == null) {
 			return null;
@@ -169,13 +305,122 @@ public class RedisCache extends AbstractValueAdaptingCache {
 		return new SimpleValueWrapper(fromStoreValue(deserializeCacheValue(result)));
 	}
 
+	/**
+	 * Get the cached values of the keys with one MGET, the missing keys are absent in the result.
+	 * A cached null is returned as {@link NullValue#INSTANCE} when null values are allowed.
+	 *
+	 * @param keys must not be {@literal null}.
+	 * @return never {@literal null}.
+	 */
+	public Map<Object, Object> getAll(Collection<?> keys) {
+
+		Map<Object, Object> result = new HashMap<>(keys.size());
+		if (keys.isEmpty()) {
+			return result;
+		}
+
+		if (redisTemplate == null) {
+			keys.forEach(key -> {
+				ValueWrapper valueWrapper = get(key);
+				if (valueWrapper != null) {
+					result.put(key, valueWrapper.get() == null ? NullValue.INSTANCE : valueWrapper.get());
+				}
+			});
+			return result;
+		}
+
+		List<Object> keyList = new ArrayList<>(keys);
+		byte[][] rawKeys = new byte[keyList.size()][];
+		for (int i = 0; i < rawKeys.length; i++) {
+			rawKeys[i] = createAndConvertCacheKey(keyList.get(i));
+		}
+
+		long start = System.nanoTime();
+		List<byte[]> rawValues = redisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.mGet(rawKeys));
+		stats.roundTrip(start);
+		if (rawValues == null) {
+			stats.getMisses().add(keyList.size());
+			return result;
+		}
+		for (int i = 0; i < rawValues.size() && i < keyList.size(); i++) {
+			byte[] rawValue = rawValues.get(i);
+			if (rawValue != null) {
+				Object value = deserializeCacheValue(rawValue);
+				if (value != null) {
+					result.put(keyList.get(i), value);
+				}
+			}
+		}
+		stats.getHits().add(result.size());
+		stats.getMisses().add(keyList.size() - result.size());
+		return result;
+	}
+
+	/**
+	 * Put the key values with one pipeline of SET PX, the null values are written as the null sentinel
+	 * with its own ttl when null values are allowed, otherwise skipped.
+	 *
+	 * @param values must not be {@literal null}.
+	 */
+	public void putAll(Map<?, ?> values) {
+
+		if (values.isEmpty()) {
+			return;
+		}
+
+		if (redisTemplate == null) {
+			values.forEach((key, value) -> {
+				if (value != null || isAllowNullValues()) {
+					put(key, value);
+				}
+			});
+			return;
+		}
+
+		long start = System.nanoTime();
+		redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+			values.forEach((key, value) -> {
+				Object cacheValue = preProcessCacheValue(value);
+				if (cacheValue != null) {
+					Expiration expiration = isExpiring() ? Expiration.from(ttlOf(cacheValue).toMillis(), TimeUnit.MILLISECONDS) : Expiration.persistent();
+					connection.set(createAndConvertCacheKey(key), serializeCacheValue(cacheValue), expiration, RedisStringCommands.SetOption.upsert());
+					stats.getPuts().increment();
+				}
+			});
+			return null;
+		}, null);
+		stats.roundTrip(start);
+	}
+
+	/**
+	 * Get the remaining ttl of the key with PTTL.
+	 *
+	 * @param key must not be {@literal null}.
+	 * @return remaining millis, negative when the key is missing, persistent or unknown.
+	 */
+	public long remainingTtlMillis(Object key) {
+
+		if (redisTemplate == null) {
+			return -1L;
+		}
+
+		byte[] cacheKey = createAndConvertCacheKey(key);
+		long start = System.nanoTime();
+		Long remaining = redisTemplate.execute((RedisCallback<Long>) connection -> connection.pTtl(cacheKey));
+		stats.roundTrip(start);
+		return remaining == null ? -1L : remaining;
+	}
+
 	/**
 	 * (non-Javadoc)
 	 * @see org.springframework.cache.Cache#evict(java.lang.Object)
 	 */
 	@Override
 	public void evict(Object key) {
+		long start = System.nanoTime();
 		cacheWriter.remove(name, createAndConvertCacheKey(key));
+		stats.roundTrip(start);
+		stats.getEvictions().increment();
 	}
 
 	/**
@@ -185,8 +430,41 @@ public class RedisCache extends AbstractValueAdaptingCache {
 	@Override
 	public void clear() {
 
-		byte[] pattern = conversionService.convert(createCacheKey("*"), byte[].class);
-		cacheWriter.clean(name, pattern);
+		if (redisTemplate == null) {
+			byte[] pattern = conversionService.convert(createCacheKey("*"), byte[].class);
+			cacheWriter.clean(name, pattern);
+			return;
+		}
+		String pattern = createCacheKey("*");
+		redisTemplate.execute((RedisCallback<Long>) connection -> unlinkMatched(connection, pattern));
+	}
+
+	/**
+	 * SCAN the keys of this cache and UNLINK them in batches, never blocks the server like KEYS.
+	 */
+	private long unlinkMatched(RedisConnection connection, String pattern) {
+		long unlinked = 0L;
+		List<byte[]> batch = new ArrayList<>(CLEAR_BATCH_SIZE);
+		try (Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().match(pattern).count(CLEAR_BATCH_SIZE).build())) {
+			while (cursor.hasNext()) {
+				batch.add(cursor.next());
+				if (batch.size() >= CLEAR_BATCH_SIZE) {
+					unlinked += unlink(connection, batch);
+					batch.clear();
+				}
+			}
+		} catch (IOException exception) {
+			throw new RedisSystemException(exception.getMessage(), exception);
+		}
+		return unlinked + unlink(connection, batch);
+	}
+
+	private long unlink(RedisConnection connection, List<byte[]> keys) {
+		if (keys.isEmpty()) {
+			return 0L;
+		}
+		Long count = connection.unlink(keys.toArray(new byte[0][]));
+		return count == null ? 0L : count;
 	}
 
 	/**
@@ -198,6 +476,91 @@ public class RedisCache extends AbstractValueAdaptingCache {
 		return cacheConfig;
 	}
 
+	/**
+	 * Get the redis key prefix of this cache.
+	 *
+	 * @return empty when the prefix is disabled.
+	 */
+	public String getKeyPrefix() {
+		return cacheConfig.usePrefix() ? cacheConfig.getKeyPrefixFor(name) : "";
+	}
+
+	/**
+	 * Get {@link RedisCacheLoadLease} used.
+	 *
+	 * @return can be {@literal null}.
+	 */
+	@Nullable
+	public RedisCacheLoadLease getLoadLease() {
+		return loadLease;
+	}
+
+	/**
+	 * Get {@link RedisCacheValueCompressor} used.
+	 *
+	 * @return never {@literal null}.
+	 */
+	public RedisCacheValueCompressor getCompressor() {
+		return compressor;
+	}
+
+	/**
+	 * Get {@link RedisCacheStats} of this cache.
+	 *
+	 * @return never {@literal null}.
+	 */
+	public RedisCacheStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Get the serialized redis key of the cache key, for commands issued outside this cache.
+	 *
+	 * @param key must not be {@literal null}.
+	 * @return never {@literal null}.
+	 */
+	public byte[] toRawKey(Object key) {
+		return createAndConvertCacheKey(key);
+	}
+
+	/**
+	 * Get the serialized redis value, compressed when large, for commands issued outside this cache.
+	 *
+	 * @param value can be {@literal null} when the cache allows null values.
+	 * @return never {@literal null}.
+	 */
+	public byte[] toRawValue(@Nullable Object value) {
+
+		Object cacheValue = preProcessCacheValue(value);
+
+		if (cacheValue == null) {
+			throw new IllegalArgumentException(String.format("Cache '%s' does not allow 'null' values.", name));
+		}
+
+		return serializeCacheValue(cacheValue);
+	}
+
+	/**
+	 * Get the ttl of a new entry of the value.
+	 *
+	 * @param value can be {@literal null}.
+	 * @return never {@literal null}, zero means persistent.
+	 */
+	public Duration ttlFor(@Nullable Object value) {
+		return ttlOf(preProcessCacheValue(value));
+	}
+
+	/**
+	 * Get the cached value of a raw redis value.
+	 *
+	 * @param rawValue can be {@literal null}.
+	 * @return {@literal null} when the raw value is missing, a wrapped null for the null sentinel.
+	 */
+	@Nullable
+	public ValueWrapper fromRawValue(@Nullable byte[] rawValue) {
+		return rawValue == null ? null : toValueWrapper(deserializeCacheValue(rawValue));
+	}
+
 	/**
 	 * Customization hook called before passing object to
 	 * {@link org.springframework.data.redis.serializer.RedisSerializer}.
@@ -237,7 +600,7 @@ public class RedisCache extends AbstractValueAdaptingCache {
 			return BINARY_NULL_VALUE;
 		}
 
-		return ByteUtils.getBytes(cacheConfig.getValueSerializationPair().write(value));
+		return compressor.compress(ByteUtils.getBytes(cacheConfig.getValueSerializationPair().write(value)));
 	}
 
 	/**
@@ -253,7 +616,7 @@ public class RedisCache extends AbstractValueAdaptingCache {
 			return NullValue.INSTANCE;
 		}
 
-		return cacheConfig.getValueSerializationPair().read(ByteBuffer.wrap(value));
+		return cacheConfig.getValueSerializationPair().read(ByteBuffer.wrap(compressor.decompress(value)));
 	}
 
 	/**
@@ -345,6 +708,17 @@ public class RedisCache extends AbstractValueAdaptingCache {
 		return source.isArray() || source.isCollection() || source.isMap();
 	}
 
+	private Duration ttlOf(Object cacheValue) {
+		if (entryTtl == null || !isExpiring()) {
+			return cacheConfig.getTtl();
+		}
+		return Duration.ofMillis(entryTtl.ttlMillis(cacheValue));
+	}
+
+	private boolean isExpiring() {
+		return !cacheConfig.getTtl().isZero() && !cacheConfig.getTtl().isNegative();
+	}
+
 	private byte[] createAndConvertCacheKey(Object key) {
 		return serializeCacheKey(createCacheKey(key));
 	}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.redis;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.lang.UUID;
+import com.thirtyai.nezha.common.NezhaConstant;
+import com.thirtyai.nezha.redis.lock.RedisLockService;
+import com.thirtyai.nezha.redis.script.RedisScriptRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * redis cache load lease
+ * cross node single flight for redis cache misses, the node which takes the lease loads the value,
+ * the others wait for the value to show up in redis.
+ *
+ * @author kyleju
+ */
+@Slf4j
+@Getter
+public class RedisCacheLoadLease {
+	private static final String LEASE_KEY_PREFIX = NezhaConstant.nezhaPreFix("cache:lease:");
+
+	private final RedisTemplate<String, Object> redisTemplate;
+	private final RedisScriptRegistry scriptRegistry;
+	/**
+	 * lease expire millis
+	 */
+	private final long leaseMillis;
+	/**
+	 * max wait millis for the lease holder's value
+	 */
+	private final long waitMillis;
+	/**
+	 * poll interval millis while waiting
+	 */
+	private final long pollMillis;
+
+	/**
+	 * lease wins count
+	 */
+	private final LongAdder wins = new LongAdder();
+	/**
+	 * lease waits count
+	 */
+	private final LongAdder waits = new LongAdder();
+	/**
+	 * waits timed out, loaded by self count
+	 */
+	private final LongAdder fallbacks = new LongAdder();
+
+	public RedisCacheLoadLease(RedisTemplate<String, Object> redisTemplate, RedisScriptRegistry scriptRegistry, long leaseMillis, long waitMillis, long pollMillis) {
+		this.redisTemplate = redisTemplate;
+		this.scriptRegistry = scriptRegistry;
+		this.leaseMillis = leaseMillis;
+		this.waitMillis = waitMillis;
+		this.pollMillis = pollMillis;
+	}
+
+	/**
+	 * lease key of the cache key, outside the cache keyspace so cache scans, clears and client tracking prefixes never see it
+	 *
+	 * @param cacheKey cache key
+	 * @return value
+	 */
+	public String leaseKey(String cacheKey) {
+		return LEASE_KEY_PREFIX + cacheKey;
+	}
+
+	/**
+	 * new lease token
+	 *
+	 * @return value
+	 */
+	public String newToken() {
+		return UUID.fastUUID().toString();
+	}
+
+	/**
+	 * try acquire lease once
+	 *
+	 * @param leaseKey lease key
+	 * @param token    token
+	 * @return true: acquired
+	 */
+	public boolean tryAcquire(String leaseKey, String token) {
+		try {
+			RedisCallback<Boolean> callback = (connection) -> scriptRegistry.eval(connection, RedisLockService.LOCK_LUA_SCRIPT, ReturnType.BOOLEAN, 1, leaseKey.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8), Convert.toStr(leaseMillis).getBytes(StandardCharsets.UTF_8));
+			return Boolean.TRUE.equals(redisTemplate.execute(callback));
+		} catch (Exception e) {
+			log.error("redis cache lease acquire has an error.", e);
+		}
+		return false;
+	}
+
+	/**
+	 * release lease if still owned
+	 *
+	 * @param leaseKey lease key
+	 * @param token    token
+	 */
+	public void release(String leaseKey, String token) {
+		try {
+			RedisCallback<Boolean> callback = (connection) -> scriptRegistry.eval(connection, RedisLockService.UNLOCK_LUA_SCRIPT, ReturnType.BOOLEAN, 1, leaseKey.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+			redisTemplate.execute(callback);
+		} catch (Exception e) {
+			log.error("redis cache lease release has an error.", e);
+		}
+	}
+}
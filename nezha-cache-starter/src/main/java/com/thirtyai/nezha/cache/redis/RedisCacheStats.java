@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.redis;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * redis cache stats
+ *
+ * @author kyleju
+ */
+@Getter
+public class RedisCacheStats {
+	/**
+	 * lookup hits
+	 */
+	private final LongAdder hits = new LongAdder();
+	/**
+	 * lookup misses
+	 */
+	private final LongAdder misses = new LongAdder();
+	/**
+	 * put values
+	 */
+	private final LongAdder puts = new LongAdder();
+	/**
+	 * evicted keys
+	 */
+	private final LongAdder evictions = new LongAdder();
+	/**
+	 * value loader successes
+	 */
+	private final LongAdder loadSuccesses = new LongAdder();
+	/**
+	 * value loader failures
+	 */
+	private final LongAdder loadFailures = new LongAdder();
+	/**
+	 * value loader nanos
+	 */
+	private final LongAdder loadNanos = new LongAdder();
+	/**
+	 * redis round trips
+	 */
+	private final LongAdder roundTrips = new LongAdder();
+	/**
+	 * redis round trip nanos
+	 */
+	private final LongAdder roundTripNanos = new LongAdder();
+
+	void roundTrip(long startNanos) {
+		roundTrips.increment();
+		roundTripNanos.add(System.nanoTime() - startNanos);
+	}
+
+	void load(long startNanos, boolean success) {
+		(success ? loadSuccesses : loadFailures).increment();
+		loadNanos.add(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * hit rate of lookups
+	 *
+	 * @return value, 0 without lookups.
+	 */
+	public double hitRate() {
+		long hitCount = hits.sum();
+		long total = hitCount + misses.sum();
+		return total == 0 ? 0D : (double) hitCount / total;
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.redis;
+
+import lombok.Getter;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * redis cache value compressor
+ * the serialized values not less than the threshold are deflated and stored behind a header:
+ * magic(0x00 'N' 'Z') + codec(1 byte) + original length(4 bytes), the values without the header are read as they are,
+ * so the uncompressed entries of old versions or other nodes keep working.
+ *
+ * @author kyleju
+ */
+@Getter
+public class RedisCacheValueCompressor {
+	private static final byte[] MAGIC = {0x00, 'N', 'Z'};
+	private static final byte CODEC_DEFLATE = 1;
+	private static final int HEADER_LENGTH = MAGIC.length + 1 + 4;
+	private static final int MAX_ORIGINAL_LENGTH = 512 * 1024 * 1024;
+
+	/**
+	 * compress threshold bytes, negative means never compress
+	 */
+	private final int thresholdBytes;
+	/**
+	 * deflate level, 1 is the fastest
+	 */
+	private final int level;
+
+	/**
+	 * compressed values count
+	 */
+	private final LongAdder compressedCount = new LongAdder();
+	/**
+	 * bytes before compression of the compressed values
+	 */
+	private final LongAdder originalBytes = new LongAdder();
+	/**
+	 * bytes after compression of the compressed values
+	 */
+	private final LongAdder compressedBytes = new LongAdder();
+	/**
+	 * compress cpu nanos
+	 */
+	private final LongAdder compressNanos = new LongAdder();
+	/**
+	 * decompressed values count
+	 */
+	private final LongAdder decompressedCount = new LongAdder();
+	/**
+	 * decompress cpu nanos
+	 */
+	private final LongAdder decompressNanos = new LongAdder();
+
+	public RedisCacheValueCompressor(int thresholdBytes, int level) {
+		this.thresholdBytes = thresholdBytes;
+		this.level = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+	}
+
+	/**
+	 * compress the serialized value if it reaches the threshold and gets smaller
+	 *
+	 * @param value serialized value
+	 * @return value
+	 */
+	public byte[] compress(byte[] value) {
+		if (thresholdBytes < 0 || value.length < thresholdBytes) {
+			return value;
+		}
+		long start = System.nanoTime();
+		Deflater deflater = new Deflater(level);
+		try {
+			deflater.setInput(value);
+			deflater.finish();
+			ByteArrayOutputStream out = new ByteArrayOutputStream(value.length / 2 + HEADER_LENGTH);
+			out.write(MAGIC, 0, MAGIC.length);
+			out.write(CODEC_DEFLATE);
+			out.write(value.length >>> 24);
+			out.write(value.length >>> 16);
+			out.write(value.length >>> 8);
+			out.write(value.length);
+			byte[] buffer = new byte[8192];
+			while (!deflater.finished()) {
+				out.write(buffer, 0, deflater.deflate(buffer));
+			}
+			if (out.size() >= value.length) {
+				return value;
+			}
+			compressedCount.increment();
+			originalBytes.add(value.length);
+			compressedBytes.add(out.size());
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+			compressNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * decompress the value if it carries the header
+	 *
+	 * @param value stored value
+	 * @return serialized value
+	 */
+	public byte[] decompress(byte[] value) {
+		if (!isCompressed(value)) {
+			return value;
+		}
+		long start = System.nanoTime();
+		int length = ((value[4] & 0xFF) << 24) | ((value[5] & 0xFF) << 16) | ((value[6] & 0xFF) << 8) | (value[7] & 0xFF);
+		if (value[3] != CODEC_DEFLATE || length < 0 || length > MAX_ORIGINAL_LENGTH) {
+			throw new SerializationException("unknown compressed redis cache value");
+		}
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(value, HEADER_LENGTH, value.length - HEADER_LENGTH);
+			byte[] result = new byte[length];
+			int offset = 0;
+			while (offset < length && !inflater.finished()) {
+				int count = inflater.inflate(result, offset, length - offset);
+				if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				offset += count;
+			}
+			if (offset != length) {
+				throw new SerializationException("truncated compressed redis cache value");
+			}
+			decompressedCount.increment();
+			return result;
+		} catch (DataFormatException exception) {
+			throw new SerializationException("corrupted compressed redis cache value", exception);
+		} finally {
+			inflater.end();
+			decompressNanos.add(System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * compression ratio, compressed bytes / original bytes of the compressed values
+	 *
+	 * @return value, 1 when nothing compressed.
+	 */
+	public double getCompressionRatio() {
+		long original = originalBytes.sum();
+		return original == 0 ? 1D : (double) compressedBytes.sum() / original;
+	}
+
+	private static boolean isCompressed(byte[] value) {
+		if (value.length < HEADER_LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (value[i] != MAGIC[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
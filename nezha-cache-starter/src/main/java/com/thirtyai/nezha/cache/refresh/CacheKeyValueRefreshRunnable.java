@@ -1,11 +1,5 @@
 package com.thirtyai.nezha.cache.refresh;
 
-
-import cn.hutool.core.convert.Convert;
-import cn.hutool.core.date.DateTime;
-import cn.hutool.core.date.DateUnit;
-import cn.hutool.core.date.DateUtil;
-import cn.hutool.core.thread.ThreadUtil;
 import com.thirtyai.nezha.cache.MultipleCache;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -15,6 +9,8 @@ import org.springframework.util.MethodInvoker;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Cache key value refresh runnable
@@ -31,6 +27,18 @@ public class CacheKeyValueRefreshRunnable implements Runnable {
 	private Object[] arguments;
 	private RefreshCacheKeyValue refreshCacheValue;
 	private MultipleCache multipleCache;
+	/**
+	 * last access millis
+	 */
+	private volatile long lastAccessMillis = System.currentTimeMillis();
+	/**
+	 * last write millis
+	 */
+	private volatile long writeMillis = System.currentTimeMillis();
+	/**
+	 * refreshing
+	 */
+	private final AtomicBoolean refreshing = new AtomicBoolean(false);
 
 	public CacheKeyValueRefreshRunnable(Object key, Object targetBean, Method targetMethod, Object[] arguments, RefreshCacheKeyValue refreshCacheKeyValue, MultipleCache multipleCache) {
 		this.key = key;
@@ -72,19 +80,47 @@ public class CacheKeyValueRefreshRunnable implements Runnable {
 		}
 	}
 
+	/**
+	 * mark the key as read
+	 */
+	public void touch() {
+		this.lastAccessMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * mark the key value as written
+	 */
+	public void written() {
+		this.writeMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * the value is older than refresh trigger seconds
+	 *
+	 * @return value
+	 */
+	public boolean isRefreshDue() {
+		return System.currentTimeMillis() - writeMillis >= TimeUnit.SECONDS.toMillis(multipleCache.getCacheItem().getRefreshTriggerSeconds());
+	}
+
+	/**
+	 * only one refresh in flight
+	 *
+	 * @return true: the caller should run the refresh
+	 */
+	public boolean tryStartRefresh() {
+		return refreshing.compareAndSet(false, true);
+	}
+
+	/**
+	 * refresh once, triggered by a read, see {@link CacheKeyValueRefreshSupport#read(MultipleCache, Object)}
+	 */
 	@Override
 	public void run() {
-		DateTime dateTime = DateTime.now();
-		int remainTime = 0;
-		while (true) {
-			if (remainTime >= this.refreshCacheValue.getMultipleCache().getCacheItem().getRefreshTriggerSeconds()) {
-				this.refreshCache();
-				remainTime = 0;
-			}
-			ThreadUtil.sleep(1000 * this.refreshCacheValue.getMultipleCache().getCacheItem().getRefresherSleepSeconds());
-			remainTime = remainTime + Convert.toInt(DateUtil.between(DateTime.now(), dateTime, DateUnit.SECOND));
-			dateTime = DateTime.now();
+		try {
+			this.refreshCache();
+		} finally {
+			refreshing.set(false);
 		}
 	}
 }
-
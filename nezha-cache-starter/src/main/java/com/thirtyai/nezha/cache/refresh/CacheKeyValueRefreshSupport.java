@@ -1,51 +1,70 @@
 package com.thirtyai.nezha.cache.refresh;
 
 import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.crypto.SecureUtil;
 import com.thirtyai.nezha.cache.MultipleCache;
 import com.thirtyai.nezha.cache.MultipleCacheManager;
+import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.lang.NonNull;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * auto refresh support
+ * refresh ahead is driven by reads: a read of a value older than refreshTriggerSeconds reloads it asynchronously
+ * on the task executor, keys nobody reads simply expire. refreshers not read for {@code refresherIdleTtlTimes} ttls
+ * are dropped by one shared sweeper thread.
  *
  * @author kyleju
  */
 @Slf4j
 @RequiredArgsConstructor
-public class CacheKeyValueRefreshSupport implements ICacheKeyValueRefreshSupport {
+public class CacheKeyValueRefreshSupport implements ICacheKeyValueRefreshSupport, InitializingBean, DisposableBean {
 	private static final int TWO = 2;
+	private static final long SWEEP_PERIOD_SECONDS = 30L;
+	private static final String SWEEPER_THREAD_PREFIX = "nezha-cache-refresher-sweeper-";
 	/**
 	 * need auto refresh caches
 	 */
-	private Map<String, CacheKeyValueRefreshRunnable> runnableRefreshers = MapUtil.newHashMap();
+	private final Map<String, CacheKeyValueRefreshRunnable> runnableRefreshers = MapUtil.newConcurrentHashMap();
+
+	/**
+	 * idle refresher sweeper
+	 */
+	private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(ThreadUtil.newNamedThreadFactory(SWEEPER_THREAD_PREFIX, true));
 
 	@NonNull
 	private final MultipleCacheManager cacheManager;
 	@NonNull
 	private final ThreadPoolTaskExecutor taskExecutor;
+	@NonNull
+	private final NezhaMultipleCacheProperties multipleCacheProperties;
 
 	@Override
 	public void add(String key, Object targetBean, Method targetMethod, Object[] arguments, List<String> cacheNames) {
-		StringBuilder sb = new StringBuilder();
-		for (Object obj : arguments) {
-			sb.append(obj.toString());
+		if (StrUtil.isBlank(key)) {
+			return;
 		}
 
 		cacheNames.forEach(cacheName -> {
 			if (StrUtil.isNotBlank(cacheName)) {
 				MultipleCache multipleCache = cacheManager.getCache(cacheName);
-				if (multipleCache != null) {
+				if (multipleCache != null && multipleCache.getCacheItem().isEnabledAutoRefresh()) {
 					RefreshCacheKeyValue refreshCacheKeyValue = new RefreshCacheKeyValue();
 					refreshCacheKeyValue.setName(cacheName);
+					refreshCacheKeyValue.setKey(key);
 					refreshCacheKeyValue.setMultipleCache(multipleCache);
 					int ttl = refreshCacheKeyValue.getMultipleCache().getCacheItem().getTtlSeconds();
 					int rts = refreshCacheKeyValue.getMultipleCache().getCacheItem().getRefreshTriggerSeconds();
@@ -60,20 +79,82 @@ public class CacheKeyValueRefreshSupport implements ICacheKeyValueRefreshSupport
 					ttl> rts > ttl/2
 					 */
 					if (ttl > 0 && rts >= ttl / TWO && (ttl - rts) >= doubleSleepTime) {
-						String keyIdentity = refreshCacheKeyValue.getName() + StrUtil.COLON + SecureUtil.md5(sb.toString());
-						final CacheKeyValueRefreshRunnable cacheKeyValueRefreshRunnable = new CacheKeyValueRefreshRunnable(key, targetBean, targetMethod, arguments, refreshCacheKeyValue, multipleCache);
-						if (!runnableRefreshers.containsKey(keyIdentity)) {
-							this.runnableRefreshers.put(keyIdentity, cacheKeyValueRefreshRunnable);
-							this.run(cacheKeyValueRefreshRunnable);
-						}
+						runnableRefreshers.computeIfAbsent(keyIdentity(multipleCache, key), keyIdentity -> new CacheKeyValueRefreshRunnable(key, targetBean, targetMethod, arguments, refreshCacheKeyValue, multipleCache));
 					}
 				}
 			}
 		});
 	}
 
+	@Override
+	public void read(MultipleCache multipleCache, Object key) {
+		if (runnableRefreshers.isEmpty()) {
+			return;
+		}
+		CacheKeyValueRefreshRunnable refresher = runnableRefreshers.get(keyIdentity(multipleCache, key));
+		if (refresher == null) {
+			return;
+		}
+		refresher.touch();
+		if (refresher.isRefreshDue() && refresher.tryStartRefresh()) {
+			try {
+				this.run(refresher);
+			} catch (TaskRejectedException exception) {
+				refresher.getRefreshing().set(false);
+				log.warn("refresh support: task executor is busy, skip refresh {} this time.", keyIdentity(multipleCache, key));
+			}
+		}
+	}
+
+	@Override
+	public void written(MultipleCache multipleCache, Object key) {
+		if (runnableRefreshers.isEmpty()) {
+			return;
+		}
+		CacheKeyValueRefreshRunnable refresher = runnableRefreshers.get(keyIdentity(multipleCache, key));
+		if (refresher != null) {
+			refresher.written();
+		}
+	}
+
 	@Override
 	public void run(Runnable runnable) {
 		taskExecutor.execute(runnable);
 	}
+
+	/**
+	 * refreshers count
+	 *
+	 * @return value
+	 */
+	public int refresherCount() {
+		return runnableRefreshers.size();
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		sweeper.scheduleWithFixedDelay(this::sweep, SWEEP_PERIOD_SECONDS, SWEEP_PERIOD_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@Override
+	public void destroy() {
+		sweeper.shutdownNow();
+		runnableRefreshers.clear();
+	}
+
+	/**
+	 * drop the refreshers not read for refresherIdleTtlTimes * ttl
+	 */
+	private void sweep() {
+		long now = System.currentTimeMillis();
+		runnableRefreshers.entrySet().removeIf(entry -> {
+			CacheKeyValueRefreshRunnable refresher = entry.getValue();
+			long idleMillis = TimeUnit.SECONDS.toMillis((long) refresher.getMultipleCache().getCacheItem().getTtlSeconds() * multipleCacheProperties.getRefresherIdleTtlTimes());
+			return now - refresher.getLastAccessMillis() > idleMillis;
+		});
+	}
+
+	private String keyIdentity(MultipleCache multipleCache, Object key) {
+		return multipleCache.getName() + StrUtil.COLON + key;
+	}
 }
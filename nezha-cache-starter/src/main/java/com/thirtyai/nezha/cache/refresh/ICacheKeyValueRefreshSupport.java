@@ -1,5 +1,7 @@
 package com.thirtyai.nezha.cache.refresh;
 
+import com.thirtyai.nezha.cache.MultipleCache;
+
 import java.lang.reflect.Method;
 import java.util.List;
 
@@ -21,6 +23,22 @@ public interface ICacheKeyValueRefreshSupport {
 	 */
 	void add(String key, Object invokedBean, Method invokedMethod, Object[] invocationArguments, List<String> cacheNames);
 
+	/**
+	 * the key is read, refresh ahead asynchronously when the value is due
+	 *
+	 * @param multipleCache multiple cache
+	 * @param key           key
+	 */
+	void read(MultipleCache multipleCache, Object key);
+
+	/**
+	 * the key value is written
+	 *
+	 * @param multipleCache multiple cache
+	 * @param key           key
+	 */
+	void written(MultipleCache multipleCache, Object key);
+
 	/**
 	 * refresh run
 	 *
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.support;
+
+import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
+import lombok.Getter;
+import org.springframework.cache.support.NullValue;
+import org.springframework.lang.Nullable;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cache entry ttl
+ * the hard ttl of an entry is ttlSeconds shortened by a random jitter, the null sentinel lives for the negative ttl,
+ * an entry whose remaining ttl is within ttlSeconds - softTtlSeconds is stale: served, and reloaded once in background.
+ *
+ * @author kyleju
+ */
+public class CacheEntryTtl {
+	private static final int HUNDRED = 100;
+	@Getter
+	private final long ttlMillis;
+	private final long negativeTtlMillis;
+	private final long jitterMillis;
+	private final long staleWindowMillis;
+
+	public CacheEntryTtl(long ttlMillis, long negativeTtlMillis, int jitterPercent, long softTtlMillis) {
+		this.ttlMillis = ttlMillis;
+		this.negativeTtlMillis = negativeTtlMillis;
+		this.jitterMillis = jitterPercent > 0 ? ttlMillis * jitterPercent / HUNDRED : 0L;
+		this.staleWindowMillis = softTtlMillis > 0 ? ttlMillis - softTtlMillis : -1L;
+	}
+
+	/**
+	 * entry ttl of the cache item
+	 *
+	 * @param item cache item
+	 * @return value
+	 */
+	public static CacheEntryTtl of(NezhaMultipleCacheProperties.CacheItem item) {
+		return new CacheEntryTtl(TimeUnit.SECONDS.toMillis(item.getTtlSeconds()), TimeUnit.SECONDS.toMillis(item.getNegativeTtlSeconds()),
+			item.getTtlJitterPercent(), TimeUnit.SECONDS.toMillis(item.getSoftTtlSeconds()));
+	}
+
+	/**
+	 * hard ttl of a new entry
+	 *
+	 * @param value store value, {@link NullValue} is the null sentinel
+	 * @return value
+	 */
+	public long ttlMillis(@Nullable Object value) {
+		if (negativeTtlMillis > 0 && value instanceof NullValue) {
+			return negativeTtlMillis;
+		}
+		if (jitterMillis > 0) {
+			return ttlMillis - ThreadLocalRandom.current().nextLong(jitterMillis + 1);
+		}
+		return ttlMillis;
+	}
+
+	/**
+	 * entries don't share one fixed ttl
+	 *
+	 * @return value
+	 */
+	public boolean isVariable() {
+		return negativeTtlMillis > 0 || jitterMillis > 0 || staleWindowMillis > 0;
+	}
+
+	/**
+	 * soft ttl enabled
+	 *
+	 * @return value
+	 */
+	public boolean isSoftExpiring() {
+		return staleWindowMillis > 0;
+	}
+
+	/**
+	 * the entry with the remaining hard ttl is stale
+	 *
+	 * @param remainingMillis remaining hard ttl, negative means unknown
+	 * @return value
+	 */
+	public boolean isStale(long remainingMillis) {
+		return staleWindowMillis > 0 && remainingMillis >= 0 && remainingMillis <= staleWindowMillis;
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.support;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.lang.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cache item expiry
+ * caffeine expiry after write by {@link CacheEntryTtl}, jittered per entry, the null sentinel expires after the negative ttl.
+ *
+ * @author kyleju
+ */
+public class CacheItemExpiry implements Expiry<Object, Object> {
+	private final CacheEntryTtl entryTtl;
+
+	public CacheItemExpiry(CacheEntryTtl entryTtl) {
+		this.entryTtl = entryTtl;
+	}
+
+	@Override
+	public long expireAfterCreate(@NonNull Object key, @NonNull Object value, long currentTime) {
+		return TimeUnit.MILLISECONDS.toNanos(entryTtl.ttlMillis(value));
+	}
+
+	@Override
+	public long expireAfterUpdate(@NonNull Object key, @NonNull Object value, long currentTime, long currentDuration) {
+		return expireAfterCreate(key, value, currentTime);
+	}
+
+	@Override
+	public long expireAfterRead(@NonNull Object key, @NonNull Object value, long currentTime, long currentDuration) {
+		return currentDuration;
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.support;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * cache key bloom filter
+ * local lock free bloom filter of the cache keys, keys are hashed by key.toString() with murmur 128 double hashing.
+ * the filter is seeded with all existing keys from the source of truth, see {@link ICacheKeySource}, until it is seeded nothing is rejected.
+ * once seeded a key never put is rejected without touching caffeine, redis or the loader, the keys created later must be put
+ * through the cache or {@code MultipleCache.addBloomFilterKey}, the keys invalidated by other nodes are put as well.
+ *
+ * @author kyleju
+ */
+public class CacheKeyBloomFilter {
+	private final AtomicLongArray bits;
+	private final long bitSize;
+	@Getter
+	private final int hashFunctions;
+	/**
+	 * rejected lookups
+	 */
+	@Getter
+	private final LongAdder rejections = new LongAdder();
+	/**
+	 * all existing keys are put
+	 */
+	@Getter
+	private volatile boolean seeded = false;
+
+	public CacheKeyBloomFilter(long expectedInsertions, double fpp) {
+		long size = (long) (-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+		int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1L, (size + 63) >>> 6));
+		this.bits = new AtomicLongArray(words);
+		this.bitSize = (long) words << 6;
+		this.hashFunctions = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+	}
+
+	/**
+	 * put the key
+	 *
+	 * @param key key
+	 */
+	public void put(Object key) {
+		long[] hash = MurmurHash.hash128(key.toString());
+		long combined = hash[0];
+		for (int i = 0; i < hashFunctions; i++) {
+			long index = (combined & Long.MAX_VALUE) % bitSize;
+			int word = (int) (index >>> 6);
+			long mask = 1L << index;
+			long current;
+			while (((current = bits.get(word)) & mask) == 0) {
+				if (bits.compareAndSet(word, current, current | mask)) {
+					break;
+				}
+			}
+			combined += hash[1];
+		}
+	}
+
+	/**
+	 * mark the filter seeded, the keys never put are rejected from now on
+	 */
+	public void markSeeded() {
+		this.seeded = true;
+	}
+
+	/**
+	 * key might be put
+	 *
+	 * @param key key
+	 * @return false when the key was never put
+	 */
+	public boolean mightContain(Object key) {
+		long[] hash = MurmurHash.hash128(key.toString());
+		long combined = hash[0];
+		for (int i = 0; i < hashFunctions; i++) {
+			long index = (combined & Long.MAX_VALUE) % bitSize;
+			if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+				rejections.increment();
+				return false;
+			}
+			combined += hash[1];
+		}
+		return true;
+	}
+}
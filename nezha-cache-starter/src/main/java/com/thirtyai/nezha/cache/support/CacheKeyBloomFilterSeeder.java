@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.support;
+
+import com.thirtyai.nezha.cache.MultipleCache;
+import com.thirtyai.nezha.cache.MultipleCacheManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.util.List;
+
+/**
+ * cache key bloom filter seeder
+ * seeds the bloom filters of the caches from their {@link ICacheKeySource} on startup,
+ * a failed source leaves the filter unseeded and nothing is rejected.
+ *
+ * @author kyleju
+ */
+@Slf4j
+public class CacheKeyBloomFilterSeeder implements SmartInitializingSingleton {
+	private final MultipleCacheManager multipleCacheManager;
+	private final List<ICacheKeySource> cacheKeySources;
+
+	public CacheKeyBloomFilterSeeder(MultipleCacheManager multipleCacheManager, List<ICacheKeySource> cacheKeySources) {
+		this.multipleCacheManager = multipleCacheManager;
+		this.cacheKeySources = cacheKeySources;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		for (ICacheKeySource cacheKeySource : cacheKeySources) {
+			MultipleCache multipleCache = multipleCacheManager.getCache(cacheKeySource.getCacheName());
+			if (multipleCache == null || multipleCache.getBloomFilter() == null) {
+				log.warn("cache {} has no bloom filter to seed.", cacheKeySource.getCacheName());
+				continue;
+			}
+			try {
+				long start = System.currentTimeMillis();
+				long count = multipleCache.seedBloomFilter(cacheKeySource.keys());
+				log.info("seed bloom filter of cache {} with {} keys in {} ms.", multipleCache.getName(), count, System.currentTimeMillis() - start);
+			} catch (Exception e) {
+				log.error("seed bloom filter of cache {} failed, keys are not rejected.", multipleCache.getName(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.support;
+
+import lombok.Getter;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * caffeine heap budget
+ * the total estimated heap bytes shared by the registered caffeine caches in proportion to their shares,
+ * every registration re-allocates the maximum weight of all caches at runtime.
+ *
+ * @author kyleju
+ */
+public class CaffeineHeapBudget {
+	@Getter
+	private final long budgetBytes;
+	private final Map<CaffeineCache, Integer> shares = new LinkedHashMap<>();
+
+	public CaffeineHeapBudget(long budgetBytes) {
+		this.budgetBytes = budgetBytes;
+	}
+
+	/**
+	 * register a weighted caffeine cache and re-allocate the budget
+	 *
+	 * @param caffeineCache caffeine cache built with maximumWeight
+	 * @param share         share of the budget
+	 */
+	public synchronized void register(CaffeineCache caffeineCache, int share) {
+		shares.put(caffeineCache, share);
+		long totalShares = shares.values().stream().mapToLong(Integer::longValue).sum();
+		shares.forEach((cache, cacheShare) -> cache.getNativeCache().policy().eviction()
+			.ifPresent(eviction -> eviction.setMaximum(Math.max(1L, budgetBytes * cacheShare / totalShares))));
+	}
+
+	/**
+	 * allocated bytes of the cache
+	 *
+	 * @param caffeineCache caffeine cache
+	 * @return value, -1 when not registered.
+	 */
+	public synchronized long allocated(CaffeineCache caffeineCache) {
+		return shares.containsKey(caffeineCache) ? caffeineCache.getNativeCache().policy().eviction().map(eviction -> eviction.getMaximum()).orElse(-1L) : -1L;
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.support;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+import lombok.Getter;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * hot key detector
+ * count-min sketch of the sampled reads in a fixed window, a key is hot when its estimated reads
+ * in the current window reach the threshold, the sketch is reset at every new window.
+ *
+ * @author kyleju
+ */
+public class HotKeyDetector {
+	private static final int DEPTH = 4;
+	@Getter
+	private final long threshold;
+	private final long windowMillis;
+	private final int sampleRate;
+	private final int widthMask;
+	private final AtomicIntegerArray counters;
+	private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
+
+	/**
+	 * @param width        counters per row, rounded up to a power of two
+	 * @param threshold    reads per window of a hot key
+	 * @param windowMillis window millis
+	 * @param sampleRate   one of sampleRate reads is counted, 1 counts all
+	 */
+	public HotKeyDetector(int width, long threshold, long windowMillis, int sampleRate) {
+		int size = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+		this.widthMask = size - 1;
+		this.counters = new AtomicIntegerArray(DEPTH * size);
+		this.threshold = threshold;
+		this.windowMillis = windowMillis;
+		this.sampleRate = Math.max(1, sampleRate);
+	}
+
+	/**
+	 * record a read of the key
+	 *
+	 * @param key key
+	 * @return true when the key is hot
+	 */
+	public boolean record(Object key) {
+		if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+			return false;
+		}
+		rollWindow();
+		long[] hash = MurmurHash.hash128(key.toString());
+		int min = Integer.MAX_VALUE;
+		for (int row = 0; row < DEPTH; row++) {
+			int index = row * (widthMask + 1) + (int) ((hash[0] + row * hash[1]) & widthMask);
+			min = Math.min(min, counters.incrementAndGet(index));
+		}
+		return (long) min * sampleRate >= threshold;
+	}
+
+	private void rollWindow() {
+		long now = System.currentTimeMillis();
+		long start = windowStart.get();
+		if (now - start >= windowMillis && windowStart.compareAndSet(start, now)) {
+			for (int i = 0; i < counters.length(); i++) {
+				counters.set(i, 0);
+			}
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.support;
+
+/**
+ * cache key source
+ * all existing keys of a cache read from the source of truth, seeds the bloom filter of the cache on startup.
+ *
+ * @author kyleju
+ */
+public interface ICacheKeySource {
+
+	/**
+	 * cache name
+	 *
+	 * @return value
+	 */
+	String getCacheName();
+
+	/**
+	 * all existing keys of the cache
+	 *
+	 * @return value
+	 */
+	Iterable<?> keys();
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.support;
+
+import cn.hutool.core.map.MapUtil;
+import com.github.benmanes.caffeine.cache.Weigher;
+import org.springframework.lang.NonNull;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.temporal.Temporal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * object size weigher
+ * estimated heap bytes of key and value with 64 bit compressed oops layout, every object of the graph is counted once,
+ * the walk stops after MAX_NODES objects, the fields of jdk classes are not reflected, good enough to bound caffeine caches by bytes.
+ *
+ * @author kyleju
+ */
+public class ObjectSizeWeigher implements Weigher<Object, Object> {
+	public static final ObjectSizeWeigher INSTANCE = new ObjectSizeWeigher();
+	private static final int MAX_NODES = 10000;
+	private static final int OBJECT_HEADER = 16;
+	private static final int REFERENCE = 8;
+	private static final int ENTRY_OVERHEAD = 32;
+	private static final Field[] NO_FIELDS = new Field[0];
+	private static final String[] JDK_PACKAGES = {"java.", "javax.", "jdk.", "sun.", "com.sun."};
+
+	private final Map<Class<?>, Field[]> fieldsCache = MapUtil.newConcurrentHashMap();
+
+	@Override
+	public int weigh(@NonNull Object key, @NonNull Object value) {
+		long size = estimate(key) + estimate(value);
+		return (int) Math.max(1L, Math.min(Integer.MAX_VALUE, size));
+	}
+
+	/**
+	 * estimated heap bytes of the object graph
+	 *
+	 * @param object object
+	 * @return value
+	 */
+	public long estimate(Object object) {
+		Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		Deque<Object> pending = new ArrayDeque<>();
+		long size = 0L;
+		push(pending, visited, object);
+		while (!pending.isEmpty()) {
+			if (visited.size() > MAX_NODES) {
+				// the rest of the graph is counted as headers only
+				return size + (long) pending.size() * OBJECT_HEADER;
+			}
+			size += shallowSize(pending.pop(), pending, visited);
+		}
+		return size;
+	}
+
+	/**
+	 * heap bytes of the object itself, its references are pushed to the pending objects
+	 */
+	private long shallowSize(Object object, Deque<Object> pending, Set<Object> visited) {
+		if (object instanceof String) {
+			return 40L + 2L * ((String) object).length();
+		}
+		if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+			return OBJECT_HEADER + 8;
+		}
+		if (object instanceof Temporal || object instanceof Date) {
+			return OBJECT_HEADER + 16;
+		}
+		Class<?> type = object.getClass();
+		if (type.isArray()) {
+			return arraySize(object, type.getComponentType(), pending, visited);
+		}
+		if (object instanceof Collection) {
+			long size = OBJECT_HEADER + 32;
+			for (Object element : (Collection<?>) object) {
+				size += ENTRY_OVERHEAD;
+				push(pending, visited, element);
+			}
+			return size;
+		}
+		if (object instanceof Map) {
+			long size = OBJECT_HEADER + 48;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) object).entrySet()) {
+				size += ENTRY_OVERHEAD;
+				push(pending, visited, entry.getKey());
+				push(pending, visited, entry.getValue());
+			}
+			return size;
+		}
+		long size = OBJECT_HEADER;
+		for (Field field : fields(type)) {
+			if (field.getType().isPrimitive()) {
+				size += primitiveSize(field.getType());
+			} else {
+				size += REFERENCE;
+				try {
+					push(pending, visited, field.get(object));
+				} catch (IllegalAccessException ignored) {
+					// counted as a reference only
+				}
+			}
+		}
+		return size;
+	}
+
+	private static void push(Deque<Object> pending, Set<Object> visited, Object object) {
+		if (object == null || object instanceof Enum || object instanceof Class) {
+			return;
+		}
+		if (visited.add(object)) {
+			pending.push(object);
+		}
+	}
+
+	private long arraySize(Object array, Class<?> componentType, Deque<Object> pending, Set<Object> visited) {
+		int length = Array.getLength(array);
+		if (componentType.isPrimitive()) {
+			return OBJECT_HEADER + (long) length * primitiveSize(componentType);
+		}
+		for (int i = 0; i < length; i++) {
+			push(pending, visited, Array.get(array, i));
+		}
+		return OBJECT_HEADER + (long) length * REFERENCE;
+	}
+
+	/**
+	 * instance fields of the type and its non jdk super classes, the jdk internals are never made accessible
+	 */
+	private Field[] fields(Class<?> type) {
+		return fieldsCache.computeIfAbsent(type, key -> {
+			List<Field> fields = new ArrayList<>();
+			for (Class<?> current = key; current != null && !isJdkClass(current); current = current.getSuperclass()) {
+				for (Field field : current.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers())) {
+						continue;
+					}
+					try {
+						field.setAccessible(true);
+						fields.add(field);
+					} catch (RuntimeException ignored) {
+						// counted as a header only
+					}
+				}
+			}
+			return fields.isEmpty() ? NO_FIELDS : fields.toArray(NO_FIELDS);
+		});
+	}
+
+	private static boolean isJdkClass(Class<?> type) {
+		String name = type.getName();
+		for (String jdkPackage : JDK_PACKAGES) {
+			if (name.startsWith(jdkPackage)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int primitiveSize(Class<?> type) {
+		if (type == long.class || type == double.class) {
+			return 8;
+		}
+		if (type == int.class || type == float.class) {
+			return 4;
+		}
+		if (type == short.class || type == char.class) {
+			return 2;
+		}
+		return 1;
+	}
+}
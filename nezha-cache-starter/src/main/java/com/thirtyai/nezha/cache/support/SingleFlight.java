@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.support;
+
+import cn.hutool.core.map.MapUtil;
+import org.springframework.lang.NonNull;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * single flight
+ * only one in-flight computation per key, the concurrent callers of the same key wait for and share its result.
+ *
+ * @author kyleju
+ */
+@SuppressWarnings("unchecked")
+public class SingleFlight {
+	/**
+	 * in flight computations
+	 */
+	private final Map<Object, CompletableFuture<Object>> flights = MapUtil.newConcurrentHashMap();
+
+	/**
+	 * execute supplier once per key
+	 *
+	 * @param key      key
+	 * @param supplier supplier, only runtime exception will be thrown to the callers.
+	 * @param <T>      T
+	 * @return value
+	 */
+	public <T> T execute(@NonNull Object key, @NonNull Supplier<T> supplier) {
+		CompletableFuture<Object> flight = new CompletableFuture<>();
+		CompletableFuture<Object> inFlight = flights.putIfAbsent(key, flight);
+		if (inFlight != null) {
+			return (T) await(inFlight);
+		}
+
+		try {
+			T value = supplier.get();
+			flight.complete(value);
+			return value;
+		} catch (Throwable throwable) {
+			flight.completeExceptionally(throwable);
+			throw throwable;
+		} finally {
+			flights.remove(key, flight);
+		}
+	}
+
+	/**
+	 * in flight count
+	 *
+	 * @return value
+	 */
+	public int inFlightCount() {
+		return flights.size();
+	}
+
+	private Object await(CompletableFuture<Object> inFlight) {
+		try {
+			return inFlight.join();
+		} catch (CompletionException exception) {
+			Throwable cause = exception.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw exception;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.tracking;
+
+import java.util.Collection;
+
+/**
+ * client tracking connection
+ *
+ * @author kyleju
+ */
+public interface ClientTrackingConnection {
+
+	/**
+	 * connect and keep the tracking of the prefixes, reconnect on failure
+	 *
+	 * @param prefixes broadcast prefixes
+	 * @param listener {@link ClientTrackingListener}
+	 */
+	void start(Collection<String> prefixes, ClientTrackingListener listener);
+
+	/**
+	 * replace the tracked prefixes
+	 *
+	 * @param prefixes broadcast prefixes
+	 */
+	void retrack(Collection<String> prefixes);
+
+	/**
+	 * close the connection and stop reconnecting
+	 */
+	void stop();
+}
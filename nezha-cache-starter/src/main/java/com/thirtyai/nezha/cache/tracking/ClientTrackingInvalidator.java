@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.tracking;
+
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.util.StrUtil;
+import com.thirtyai.nezha.cache.MultipleCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * client tracking invalidator
+ * evicts the caffeine entries of the caffeine redis caches whose redis keys are pushed by redis client tracking,
+ * the redis key is the cache key prefix + key, a lost or renewed tracking connection clears the tracked caffeine caches.
+ *
+ * @author kyleju
+ */
+@Slf4j
+public class ClientTrackingInvalidator implements ClientTrackingListener, DisposableBean {
+	private final ClientTrackingConnection clientTrackingConnection;
+	/**
+	 * tracked caches of redis key prefix
+	 */
+	private final Map<String, MultipleCache> trackedCaches = MapUtil.newConcurrentHashMap();
+	private volatile boolean started = false;
+
+	public ClientTrackingInvalidator(ClientTrackingConnection clientTrackingConnection) {
+		this.clientTrackingConnection = clientTrackingConnection;
+	}
+
+	/**
+	 * track the caffeine tier of the cache, the connection is started by the first tracked cache,
+	 * a later cache renews the connection with all prefixes.
+	 *
+	 * @param multipleCache caffeine redis cache
+	 * @param keyPrefix     redis key prefix of the cache
+	 */
+	public synchronized void track(MultipleCache multipleCache, String keyPrefix) {
+		if (multipleCache.getCaffeine() == null || StrUtil.isEmpty(keyPrefix)) {
+			log.warn("cache {} can't be tracked without caffeine tier and key prefix.", multipleCache.getName());
+			return;
+		}
+		if (trackedCaches.put(keyPrefix, multipleCache) != null) {
+			return;
+		}
+		if (started) {
+			clientTrackingConnection.retrack(trackedCaches.keySet());
+		} else {
+			started = true;
+			clientTrackingConnection.start(trackedCaches.keySet(), this);
+		}
+	}
+
+	@Override
+	public void onInvalidate(@Nullable List<String> keys) {
+		if (keys == null) {
+			trackedCaches.values().forEach(multipleCache -> multipleCache.getInvalidationsReceived().increment());
+			clearAll();
+			return;
+		}
+		for (String redisKey : keys) {
+			for (Map.Entry<String, MultipleCache> entry : trackedCaches.entrySet()) {
+				if (redisKey.startsWith(entry.getKey())) {
+					entry.getValue().getInvalidationsReceived().increment();
+					entry.getValue().getCaffeine().evict(redisKey.substring(entry.getKey().length()));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void onConnected() {
+		clearAll();
+	}
+
+	@Override
+	public void onDisconnected() {
+		clearAll();
+	}
+
+	@Override
+	public void destroy() {
+		clientTrackingConnection.stop();
+	}
+
+	private void clearAll() {
+		trackedCaches.values().forEach(multipleCache -> multipleCache.getCaffeine().clear());
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.tracking;
+
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * client tracking listener
+ *
+ * @author kyleju
+ */
+public interface ClientTrackingListener {
+
+	/**
+	 * redis keys modified
+	 *
+	 * @param keys redis keys, null means the whole keyspace was flushed.
+	 */
+	void onInvalidate(@Nullable List<String> keys);
+
+	/**
+	 * tracking connection is subscribed, the keys modified before are unknown
+	 */
+	void onConnected();
+
+	/**
+	 * tracking connection is lost, the invalidations are lost until reconnected
+	 */
+	void onDisconnected();
+}
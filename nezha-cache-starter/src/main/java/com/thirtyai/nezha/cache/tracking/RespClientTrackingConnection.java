@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.tracking;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * RESP2 client tracking connection
+ * one dedicated socket: CLIENT TRACKING on REDIRECT to itself in BCAST mode, then SUBSCRIBE __redis__:invalidate.
+ * lettuce 5.x keeps only the last element of an array pub sub payload, so the invalidation messages are decoded here.
+ * an idle connection is probed with PING, a missing reply or any io error closes it and reconnects.
+ *
+ * @author kyleju
+ */
+@Slf4j
+public class RespClientTrackingConnection implements ClientTrackingConnection {
+	public static final String INVALIDATE_CHANNEL = "__redis__:invalidate";
+	private static final String THREAD_NAME = "nezha-cache-client-tracking";
+	private static final String MESSAGE = "message";
+
+	private final String host;
+	private final int port;
+	@Nullable
+	private final String password;
+	private final int connectTimeoutMillis;
+	private final int heartbeatMillis;
+	private final long reconnectMillis;
+
+	private volatile Collection<String> prefixes = Collections.emptyList();
+	private volatile ClientTrackingListener listener;
+	private volatile boolean running = false;
+	private volatile Socket socket;
+	private final AtomicBoolean retrackRequested = new AtomicBoolean(false);
+	private Thread thread;
+
+	public RespClientTrackingConnection(String host, int port, @Nullable String password, int connectTimeoutMillis, int heartbeatMillis, long reconnectMillis) {
+		this.host = host;
+		this.port = port;
+		this.password = password;
+		this.connectTimeoutMillis = connectTimeoutMillis;
+		this.heartbeatMillis = heartbeatMillis;
+		this.reconnectMillis = reconnectMillis;
+	}
+
+	@Override
+	public synchronized void start(Collection<String> prefixes, ClientTrackingListener listener) {
+		if (running) {
+			return;
+		}
+		this.prefixes = new ArrayList<>(prefixes);
+		this.listener = listener;
+		this.running = true;
+		this.thread = ThreadUtil.newThread(this::loop, THREAD_NAME, true);
+		this.thread.start();
+	}
+
+	@Override
+	public void retrack(Collection<String> prefixes) {
+		this.prefixes = new ArrayList<>(prefixes);
+		retrackRequested.set(true);
+		closeSocket();
+	}
+
+	@Override
+	public synchronized void stop() {
+		running = false;
+		closeSocket();
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	private void loop() {
+		while (running) {
+			boolean connected = false;
+			try (Socket current = new Socket()) {
+				socket = current;
+				current.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+				current.setSoTimeout(heartbeatMillis);
+				current.setKeepAlive(true);
+				InputStream in = new BufferedInputStream(current.getInputStream());
+				OutputStream out = new BufferedOutputStream(current.getOutputStream());
+				handshake(in, out);
+				connected = true;
+				listener.onConnected();
+				receive(in, out);
+			} catch (Exception exception) {
+				if (running && !retrackRequested.get()) {
+					log.warn("redis client tracking connection to {}:{} lost, {}", host, port, ExceptionUtil.getMessage(exception));
+				}
+			} finally {
+				socket = null;
+			}
+			if (connected) {
+				listener.onDisconnected();
+			}
+			if (running && !retrackRequested.getAndSet(false)) {
+				ThreadUtil.sleep(reconnectMillis);
+			}
+		}
+	}
+
+	private void handshake(InputStream in, OutputStream out) throws IOException {
+		if (StrUtil.isNotEmpty(password)) {
+			send(out, "AUTH", password);
+			read(in);
+		}
+		send(out, "CLIENT", "ID");
+		Object clientId = read(in);
+		Collection<String> trackedPrefixes = this.prefixes;
+		if (!trackedPrefixes.isEmpty()) {
+			List<String> args = new ArrayList<>();
+			Collections.addAll(args, "CLIENT", "TRACKING", "on", "REDIRECT", String.valueOf(clientId), "BCAST");
+			trackedPrefixes.forEach(prefix -> Collections.addAll(args, "PREFIX", prefix));
+			send(out, args.toArray(new String[0]));
+			read(in);
+		}
+		send(out, "SUBSCRIBE", INVALIDATE_CHANNEL);
+		read(in);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void receive(InputStream in, OutputStream out) throws IOException {
+		boolean probing = false;
+		while (running) {
+			int type;
+			try {
+				type = in.read();
+			} catch (SocketTimeoutException timeout) {
+				if (probing) {
+					throw timeout;
+				}
+				probing = true;
+				send(out, "PING");
+				continue;
+			}
+			probing = false;
+			Object reply = read(in, type);
+			if (!(reply instanceof List) || ((List<Object>) reply).size() < 3) {
+				continue;
+			}
+			List<Object> message = (List<Object>) reply;
+			if (MESSAGE.equals(message.get(0)) && INVALIDATE_CHANNEL.equals(message.get(1))) {
+				Object keys = message.get(2);
+				if (keys == null) {
+					listener.onInvalidate(null);
+				} else if (keys instanceof List) {
+					listener.onInvalidate((List<String>) keys);
+				} else {
+					listener.onInvalidate(Collections.singletonList(keys.toString()));
+				}
+			}
+		}
+	}
+
+	private void closeSocket() {
+		Socket current = socket;
+		if (current != null) {
+			IoUtil.close(current);
+		}
+	}
+
+	private static void send(OutputStream out, String... args) throws IOException {
+		out.write(("*" + args.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+		for (String arg : args) {
+			byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+			out.write(("$" + bytes.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+			out.write(bytes);
+			out.write('\r');
+			out.write('\n');
+		}
+		out.flush();
+	}
+
+	private static Object read(InputStream in) throws IOException {
+		return read(in, in.read());
+	}
+
+	private static Object read(InputStream in, int type) throws IOException {
+		switch (type) {
+			case '+':
+				return readLine(in);
+			case '-':
+				throw new IOException(readLine(in));
+			case ':':
+				return Long.parseLong(readLine(in));
+			case '$':
+				int length = Integer.parseInt(readLine(in));
+				if (length < 0) {
+					return null;
+				}
+				byte[] bytes = new byte[length];
+				int offset = 0;
+				while (offset < length) {
+					int count = in.read(bytes, offset, length - offset);
+					if (count < 0) {
+						throw new EOFException();
+					}
+					offset += count;
+				}
+				readLine(in);
+				return new String(bytes, StandardCharsets.UTF_8);
+			case '*':
+				int size = Integer.parseInt(readLine(in));
+				if (size < 0) {
+					return null;
+				}
+				List<Object> elements = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					elements.add(read(in));
+				}
+				return elements;
+			case -1:
+				throw new EOFException();
+			default:
+				throw new IOException("unknown reply type " + (char) type);
+		}
+	}
+
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int current;
+		while ((current = in.read()) != '\r') {
+			if (current < 0) {
+				throw new EOFException();
+			}
+			line.write(current);
+		}
+		if (in.read() != '\n') {
+			throw new IOException("malformed reply line");
+		}
+		return new String(line.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
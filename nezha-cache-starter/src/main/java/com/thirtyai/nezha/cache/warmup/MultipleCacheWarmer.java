@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.cache.warmup;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.thirtyai.nezha.cache.CacheWarmUpStrategy;
+import com.thirtyai.nezha.cache.MultipleCache;
+import com.thirtyai.nezha.cache.MultipleCacheManager;
+import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
+import com.thirtyai.nezha.cache.redis.RedisCache;
+import com.thirtyai.nezha.redis.serializer.RedisValueSerializerRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.lang.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * multiple cache warmer
+ * on shutdown the most recently used caffeine keys are saved to redis, or the entries to a local snapshot file,
+ * on startup they are loaded back into the caffeine tier before the context is ready, bounded by warmUpTimeoutMillis.
+ * keys and values are written by the serializer of the cache item, a snapshot of a redis backed cache only restores its keys,
+ * the values are read from redis again, a caffeine only snapshot keeps the expire time of every entry.
+ *
+ * @author kyleju
+ */
+@Slf4j
+public class MultipleCacheWarmer implements InitializingBean, DisposableBean {
+	private static final String WARM_UP_KEY_PREFIX = "nezha:cache:warmup:";
+	private static final String SNAPSHOT_SUFFIX = ".snapshot";
+	private static final String WARM_UP_THREAD_PREFIX = "nezha-cache-warm-up-";
+	private static final int MAX_WARM_UP_THREADS = 4;
+	/**
+	 * leading int of the warm up formats, a file or key list of another format is skipped
+	 */
+	private static final int SNAPSHOT_MAGIC = 0x4E5A5331;
+	private static final int KEYS_MAGIC = 0x4E5A4B31;
+
+	private final MultipleCacheManager multipleCacheManager;
+	private final NezhaMultipleCacheProperties multipleCacheProperties;
+	@Nullable
+	private final RedisTemplate<String, Object> redisTemplate;
+	private final RedisValueSerializerRegistry redisValueSerializerRegistry;
+
+	public MultipleCacheWarmer(MultipleCacheManager multipleCacheManager, NezhaMultipleCacheProperties multipleCacheProperties, @Nullable RedisTemplate<String, Object> redisTemplate,
+							   RedisValueSerializerRegistry redisValueSerializerRegistry) {
+		this.multipleCacheManager = multipleCacheManager;
+		this.multipleCacheProperties = multipleCacheProperties;
+		this.redisTemplate = redisTemplate;
+		this.redisValueSerializerRegistry = redisValueSerializerRegistry;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		List<MultipleCache> caches = warmUpCaches();
+		if (caches.isEmpty()) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		long deadline = start + multipleCacheProperties.getWarmUpTimeoutMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(caches.size(), MAX_WARM_UP_THREADS), ThreadUtil.newNamedThreadFactory(WARM_UP_THREAD_PREFIX, true));
+		try {
+			Map<MultipleCache, Future<Integer>> futures = new LinkedHashMap<>();
+			caches.forEach(multipleCache -> futures.put(multipleCache, executor.submit(() -> warmUp(multipleCache))));
+			int entries = 0;
+			for (Map.Entry<MultipleCache, Future<Integer>> entry : futures.entrySet()) {
+				try {
+					entries += entry.getValue().get(Math.max(0L, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+				} catch (TimeoutException exception) {
+					entry.getValue().cancel(true);
+					log.warn("warm up of {} is out of time budget, skipped.", entry.getKey().getName());
+				} catch (ExecutionException exception) {
+					log.warn("warm up of {} failed, {}", entry.getKey().getName(), ExceptionUtil.getMessage(exception.getCause()));
+				} catch (InterruptedException exception) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			log.info("warm up {} entries of {} caches in {} ms.", entries, caches.size(), System.currentTimeMillis() - start);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public void destroy() {
+		warmUpCaches().forEach(multipleCache -> {
+			try {
+				save(multipleCache);
+			} catch (Exception exception) {
+				log.warn("save warm up of {} failed, {}", multipleCache.getName(), ExceptionUtil.getMessage(exception));
+			}
+		});
+	}
+
+	/**
+	 * warm up the caffeine tier of the cache
+	 *
+	 * @param multipleCache multiple cache
+	 * @return warmed entries
+	 * @throws IOException snapshot read failed
+	 */
+	public int warmUp(MultipleCache multipleCache) throws IOException {
+		CaffeineCache caffeineCache = (CaffeineCache) multipleCache.getCaffeine();
+		int warmed;
+		if (CacheWarmUpStrategy.Redis.equals(multipleCache.getCacheItem().getWarmUp())) {
+			warmed = putFromRedis(multipleCache, caffeineCache, readKeysFromRedis(multipleCache));
+		} else {
+			Map<Object, SnapshotEntry> entries = readSnapshot(multipleCache);
+			if (isRedisBacked(multipleCache)) {
+				warmed = putFromRedis(multipleCache, caffeineCache, new ArrayList<>(entries.keySet()));
+			} else {
+				warmed = putUnexpired(multipleCache, caffeineCache, entries);
+			}
+		}
+		return warmed;
+	}
+
+	/**
+	 * save the most recently used keys or entries of the caffeine tier
+	 *
+	 * @param multipleCache multiple cache
+	 * @throws IOException snapshot write failed
+	 */
+	public void save(MultipleCache multipleCache) throws IOException {
+		CaffeineCache caffeineCache = (CaffeineCache) multipleCache.getCaffeine();
+		Map<Object, Object> entries = mostRecentlyUsed(caffeineCache, multipleCache.getCacheItem().getWarmUpMaxKeys());
+		if (entries.isEmpty()) {
+			return;
+		}
+		if (CacheWarmUpStrategy.Redis.equals(multipleCache.getCacheItem().getWarmUp())) {
+			saveToRedis(multipleCache, new ArrayList<>(entries.keySet()));
+		} else {
+			writeSnapshot(multipleCache, caffeineCache, entries);
+		}
+	}
+
+	private List<MultipleCache> warmUpCaches() {
+		List<MultipleCache> caches = new ArrayList<>();
+		for (String name : multipleCacheManager.getCacheNames()) {
+			MultipleCache multipleCache = multipleCacheManager.getCache(name);
+			if (multipleCache == null || !(multipleCache.getCaffeine() instanceof CaffeineCache)) {
+				continue;
+			}
+			CacheWarmUpStrategy strategy = multipleCache.getCacheItem().getWarmUp();
+			if (CacheWarmUpStrategy.Snapshot.equals(strategy)
+				|| (CacheWarmUpStrategy.Redis.equals(strategy) && isRedisBacked(multipleCache))) {
+				caches.add(multipleCache);
+			}
+		}
+		return caches;
+	}
+
+	private boolean isRedisBacked(MultipleCache multipleCache) {
+		return multipleCache.getRedis() instanceof RedisCache && redisTemplate != null;
+	}
+
+	private RedisSerializer<Object> serializer(MultipleCache multipleCache) {
+		return redisValueSerializerRegistry.getSerializer(multipleCache.getCacheItem().getSerializer());
+	}
+
+	/**
+	 * values of a redis backed cache always come from redis, the caffeine tier gets a fresh ttl
+	 */
+	private int putFromRedis(MultipleCache multipleCache, CaffeineCache caffeineCache, List<Object> keys) {
+		if (keys.isEmpty()) {
+			return 0;
+		}
+		Map<Object, Object> entries = ((RedisCache) multipleCache.getRedis()).getAll(keys);
+		if (!caffeineCache.isAllowNullValues()) {
+			entries.values().removeIf(value -> value instanceof NullValue);
+		}
+		caffeineCache.getNativeCache().putAll(entries);
+		entries.forEach((key, value) -> {
+			if (!(value instanceof NullValue)) {
+				multipleCache.addBloomFilterKey(key);
+			}
+		});
+		return entries.size();
+	}
+
+	/**
+	 * entries of a caffeine only cache keep the expire time they had when the snapshot was written
+	 */
+	private int putUnexpired(MultipleCache multipleCache, CaffeineCache caffeineCache, Map<Object, SnapshotEntry> entries) {
+		Policy<Object, Object> policy = caffeineCache.getNativeCache().policy();
+		if (entries.isEmpty() || !policy.expireVariably().isPresent()) {
+			return 0;
+		}
+		long now = System.currentTimeMillis();
+		int warmed = 0;
+		for (Map.Entry<Object, SnapshotEntry> entry : entries.entrySet()) {
+			long remainingMillis = entry.getValue().expiresAt - now;
+			if (remainingMillis > 0) {
+				policy.expireVariably().get().put(entry.getKey(), entry.getValue().value, remainingMillis, TimeUnit.MILLISECONDS);
+				multipleCache.addBloomFilterKey(entry.getKey());
+				warmed++;
+			}
+		}
+		return warmed;
+	}
+
+	private List<Object> readKeysFromRedis(MultipleCache multipleCache) {
+		byte[] warmUpKey = warmUpKey(multipleCache).getBytes(StandardCharsets.UTF_8);
+		byte[] rawKeys = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(warmUpKey));
+		if (rawKeys == null) {
+			return Collections.emptyList();
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(rawKeys);
+		if (buffer.remaining() < Integer.BYTES || buffer.getInt() != KEYS_MAGIC) {
+			log.info("warm up keys of {} are of an unknown format, skipped.", multipleCache.getName());
+			return Collections.emptyList();
+		}
+		RedisSerializer<Object> serializer = serializer(multipleCache);
+		List<Object> keys = new ArrayList<>();
+		while (buffer.hasRemaining()) {
+			Object key = serializer.deserialize(readBytes(buffer));
+			if (key != null) {
+				keys.add(key);
+			}
+		}
+		return keys;
+	}
+
+	private void saveToRedis(MultipleCache multipleCache, List<Object> keys) throws IOException {
+		RedisSerializer<Object> serializer = serializer(multipleCache);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream outputStream = new DataOutputStream(bytes);
+		outputStream.writeInt(KEYS_MAGIC);
+		for (Object key : keys) {
+			byte[] rawKey = serialize(serializer, key);
+			if (rawKey != null) {
+				writeBytes(outputStream, rawKey);
+			}
+		}
+		byte[] warmUpKey = warmUpKey(multipleCache).getBytes(StandardCharsets.UTF_8);
+		byte[] rawKeys = bytes.toByteArray();
+		Expiration expiration = Expiration.seconds(multipleCache.getCacheItem().getTtlSeconds());
+		redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.set(warmUpKey, rawKeys, expiration, RedisStringCommands.SetOption.upsert()));
+	}
+
+	private Map<Object, SnapshotEntry> readSnapshot(MultipleCache multipleCache) throws IOException {
+		Path snapshot = snapshotPath(multipleCache);
+		if (!Files.isRegularFile(snapshot)) {
+			return Collections.emptyMap();
+		}
+		RedisSerializer<Object> serializer = serializer(multipleCache);
+		Map<Object, SnapshotEntry> entries = new LinkedHashMap<>();
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < Integer.BYTES || buffer.getInt() != SNAPSHOT_MAGIC) {
+				log.info("warm up snapshot of {} is of an unknown format, skipped.", multipleCache.getName());
+				return Collections.emptyMap();
+			}
+			while (buffer.hasRemaining()) {
+				long expiresAt = buffer.getLong();
+				Object key = serializer.deserialize(readBytes(buffer));
+				Object value = serializer.deserialize(readBytes(buffer));
+				if (key != null && value != null) {
+					entries.put(key, new SnapshotEntry(value, expiresAt));
+				}
+			}
+		} catch (BufferUnderflowException exception) {
+			log.warn("warm up snapshot of {} is truncated, {} entries read.", multipleCache.getName(), entries.size());
+		}
+		return entries;
+	}
+
+	private void writeSnapshot(MultipleCache multipleCache, CaffeineCache caffeineCache, Map<Object, Object> entries) throws IOException {
+		RedisSerializer<Object> serializer = serializer(multipleCache);
+		Policy<Object, Object> policy = caffeineCache.getNativeCache().policy();
+		long now = System.currentTimeMillis();
+		long ttlMillis = TimeUnit.SECONDS.toMillis(multipleCache.getCacheItem().getTtlSeconds());
+		Path snapshot = snapshotPath(multipleCache);
+		Files.createDirectories(snapshot.getParent());
+		Path temp = Files.createTempFile(snapshot.getParent(), snapshot.getFileName().toString(), null);
+		try (OutputStream fileStream = Files.newOutputStream(temp);
+			 DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(fileStream))) {
+			outputStream.writeInt(SNAPSHOT_MAGIC);
+			for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+				if (entry.getValue() instanceof NullValue) {
+					continue;
+				}
+				byte[] rawKey = serialize(serializer, entry.getKey());
+				byte[] rawValue = serialize(serializer, entry.getValue());
+				if (rawKey != null && rawValue != null) {
+					outputStream.writeLong(now + remainingMillis(policy, entry.getKey(), ttlMillis));
+					writeBytes(outputStream, rawKey);
+					writeBytes(outputStream, rawValue);
+				}
+			}
+		}
+		Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * remaining ttl of a caffeine entry, the full ttl if the policy can't tell
+	 */
+	private static long remainingMillis(Policy<Object, Object> policy, Object key, long ttlMillis) {
+		if (policy.expireVariably().isPresent()) {
+			OptionalLong remaining = policy.expireVariably().get().getExpiresAfter(key, TimeUnit.MILLISECONDS);
+			if (remaining.isPresent()) {
+				return remaining.getAsLong();
+			}
+		}
+		if (policy.expireAfterWrite().isPresent()) {
+			OptionalLong age = policy.expireAfterWrite().get().ageOf(key, TimeUnit.MILLISECONDS);
+			if (age.isPresent()) {
+				return Math.max(0L, ttlMillis - age.getAsLong());
+			}
+		}
+		return ttlMillis;
+	}
+
+	@Nullable
+	private static byte[] serialize(RedisSerializer<Object> serializer, Object value) {
+		try {
+			return serializer.serialize(value);
+		} catch (SerializationException exception) {
+			log.debug("warm up skipped an entry, {}", ExceptionUtil.getMessage(exception));
+			return null;
+		}
+	}
+
+	private static void writeBytes(DataOutputStream outputStream, byte[] bytes) throws IOException {
+		outputStream.writeInt(bytes.length);
+		outputStream.write(bytes);
+	}
+
+	private static byte[] readBytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * the hottest entries of a size bounded cache, otherwise the youngest
+	 */
+	private static Map<Object, Object> mostRecentlyUsed(CaffeineCache caffeineCache, int limit) {
+		Policy<Object, Object> policy = caffeineCache.getNativeCache().policy();
+		if (policy.eviction().isPresent()) {
+			return policy.eviction().get().hottest(limit);
+		}
+		if (policy.expireVariably().isPresent()) {
+			return policy.expireVariably().get().youngest(limit);
+		}
+		if (policy.expireAfterWrite().isPresent()) {
+			return policy.expireAfterWrite().get().youngest(limit);
+		}
+		return caffeineCache.getNativeCache().asMap().entrySet().stream().limit(limit)
+			.collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (first, second) -> first, LinkedHashMap::new));
+	}
+
+	private String warmUpKey(MultipleCache multipleCache) {
+		return WARM_UP_KEY_PREFIX + multipleCache.getName();
+	}
+
+	private Path snapshotPath(MultipleCache multipleCache) {
+		return Paths.get(multipleCacheProperties.getWarmUpSnapshotDir(), multipleCache.getName().replaceAll("[^A-Za-z0-9_.-]", "_") + SNAPSHOT_SUFFIX);
+	}
+
+	/**
+	 * snapshot entry with its expire time
+	 */
+	private static class SnapshotEntry {
+		private final Object value;
+		private final long expiresAt;
+
+		SnapshotEntry(Object value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
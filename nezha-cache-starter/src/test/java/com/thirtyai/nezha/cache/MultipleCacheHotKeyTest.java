@@ -0,0 +1,59 @@
+package com.thirtyai.nezha.cache;
+
+import com.thirtyai.nezha.cache.message.CacheKeyMessagePubSub;
+import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * hot key tier of redis caches test
+ */
+public class MultipleCacheHotKeyTest {
+	private Cache redis;
+	private CacheKeyMessagePubSub cacheKeyMessagePubSub;
+	private MultipleCache multipleCache;
+
+	@Before
+	public void setUp() {
+		NezhaMultipleCacheProperties.CacheItem item = new NezhaMultipleCacheProperties.CacheItem();
+		item.setName("config#r");
+		item.setHotKeyThreshold(3L);
+		item.setHotKeyWindowMillis(60000L);
+		redis = spy(new ConcurrentMapCache("config#r"));
+		cacheKeyMessagePubSub = mock(CacheKeyMessagePubSub.class);
+		multipleCache = new MultipleCache(item, null, redis, cacheKeyMessagePubSub);
+	}
+
+	@Test
+	public void hotKeyIsServedLocally() {
+		redis.put("blob", "value");
+		for (int i = 0; i < 10; i++) {
+			assertEquals("value", multipleCache.get("blob", String.class));
+		}
+		verify(redis, times(3)).get("blob", String.class);
+		assertEquals(1L, multipleCache.getHotKeyPromotions().sum());
+		assertSame(multipleCache.getHotKeyCache(), multipleCache.getLocalTier());
+	}
+
+	@Test
+	public void writeEvictsAndPublishesTheHotKey() {
+		redis.put("blob", "value");
+		for (int i = 0; i < 3; i++) {
+			multipleCache.get("blob");
+		}
+		multipleCache.put("blob", "changed");
+		assertNull(multipleCache.getHotKeyCache().get("blob"));
+		verify(cacheKeyMessagePubSub).evict("config#r", "blob");
+		assertEquals("changed", multipleCache.get("blob").get());
+	}
+}
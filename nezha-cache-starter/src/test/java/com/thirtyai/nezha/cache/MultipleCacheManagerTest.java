@@ -0,0 +1,157 @@
+package com.thirtyai.nezha.cache;
+
+import com.thirtyai.nezha.cache.message.CacheKeyMessagePubSub;
+import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
+import com.thirtyai.nezha.redis.operator.RedisOperator;
+import com.thirtyai.nezha.redis.serializer.RedisValueSerializerRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * multiple cache manager test
+ */
+public class MultipleCacheManagerTest {
+	private MultipleCacheManager multipleCacheManager;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		NezhaMultipleCacheProperties properties = new NezhaMultipleCacheProperties();
+		NezhaMultipleCacheProperties.CacheItem negative = new NezhaMultipleCacheProperties.CacheItem();
+		negative.setName("negative");
+		negative.setNegativeTtlSeconds(1);
+		NezhaMultipleCacheProperties.CacheItem bloom = new NezhaMultipleCacheProperties.CacheItem();
+		bloom.setName("bloom");
+		bloom.setBloomFilterExpectedInsertions(1000L);
+		NezhaMultipleCacheProperties.CacheItem soft = new NezhaMultipleCacheProperties.CacheItem();
+		soft.setName("soft");
+		soft.setTtlSeconds(10);
+		soft.setSoftTtlSeconds(1);
+		properties.setCaffeine(Arrays.asList(negative, bloom, soft));
+		multipleCacheManager = new MultipleCacheManager(properties, mock(CacheKeyMessagePubSub.class),
+			mock(ObjectProvider.class), mock(RedisOperator.class), mock(RedisValueSerializerRegistry.class));
+		multipleCacheManager.afterPropertiesSet();
+	}
+
+	@Test
+	public void dynamicCacheIsResolvedOnceCaseInsensitive() {
+		MultipleCache multipleCache = multipleCacheManager.getCache("users_300#c");
+		assertNotNull(multipleCache);
+		assertSame(multipleCache, multipleCacheManager.getCache("users_300#c"));
+		assertSame(multipleCache, multipleCacheManager.getCache("USERS_300#C"));
+		assertEquals(4, multipleCacheManager.getCacheNames().size());
+	}
+
+	@Test
+	public void unknownCacheIsNotMemoized() {
+		assertNull(multipleCacheManager.getCache("users"));
+		assertNull(multipleCacheManager.getCache("users"));
+		assertEquals(3, multipleCacheManager.getCacheNames().size());
+	}
+
+	@Test
+	public void nullResultIsCachedUntilNegativeTtl() throws InterruptedException {
+		MultipleCache multipleCache = multipleCacheManager.getCache("negative");
+		AtomicInteger loads = new AtomicInteger();
+		assertNull(multipleCache.get("missing", () -> {
+			loads.incrementAndGet();
+			return null;
+		}));
+		assertNull(multipleCache.get("missing", loads::incrementAndGet));
+		assertEquals(1, loads.get());
+		assertNotNull(multipleCache.get("missing"));
+
+		Thread.sleep(1100L);
+		assertEquals(Integer.valueOf(2), multipleCache.get("missing", loads::incrementAndGet));
+	}
+
+	@Test
+	public void bulkUnloadedKeysAreCachedUntilNegativeTtl() throws InterruptedException {
+		MultipleCache multipleCache = multipleCacheManager.getCache("negative");
+		AtomicInteger loads = new AtomicInteger();
+		Function<Set<?>, Map<?, ?>> bulkLoader = keys -> {
+			loads.addAndGet(keys.size());
+			return keys.contains("present") ? Collections.singletonMap("present", "value") : Collections.emptyMap();
+		};
+		Map<Object, Object> values = multipleCache.getAll(Arrays.asList("present", "missing"), bulkLoader);
+		assertEquals(Collections.singletonMap("present", "value"), values);
+		assertEquals(2, loads.get());
+
+		values = multipleCache.getAll(Arrays.asList("present", "missing"), bulkLoader);
+		assertEquals(Collections.singletonMap("present", "value"), values);
+		assertEquals(2, loads.get());
+		assertNotNull(multipleCache.get("missing"));
+
+		Thread.sleep(1100L);
+		multipleCache.getAll(Collections.singletonList("missing"), bulkLoader);
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	public void unseededBloomFilterRejectsNothing() {
+		MultipleCache multipleCache = multipleCacheManager.getCache("bloom");
+		AtomicInteger loads = new AtomicInteger();
+		assertEquals(Integer.valueOf(1), multipleCache.get("key", loads::incrementAndGet));
+		assertEquals(1, loads.get());
+		assertNull(multipleCache.get("other"));
+	}
+
+	@Test
+	public void seededBloomFilterServesOnlyTheSourceKeys() {
+		Map<String, String> source = new HashMap<>();
+		source.put("present", "value");
+		MultipleCache multipleCache = multipleCacheManager.getCache("bloom");
+		assertEquals(1L, multipleCache.seedBloomFilter(source.keySet()));
+
+		AtomicInteger loads = new AtomicInteger();
+		assertEquals("value", multipleCache.get("present", () -> {
+			loads.incrementAndGet();
+			return source.get("present");
+		}));
+		assertEquals("value", multipleCache.get("present").get());
+		assertNull(multipleCache.get("absent"));
+		assertTrue(multipleCache.getBloomFilter().getRejections().sum() >= 1);
+
+		// created on another node after the seeding
+		source.put("created", "later");
+		assertEquals("later", multipleCache.get("created", () -> {
+			loads.incrementAndGet();
+			return source.get("created");
+		}));
+		assertEquals("later", multipleCache.get("created").get());
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void staleValueIsServedWhileReloading() throws InterruptedException {
+		MultipleCache multipleCache = multipleCacheManager.getCache("soft");
+		AtomicInteger loads = new AtomicInteger();
+		assertEquals(Integer.valueOf(1), multipleCache.get("key", loads::incrementAndGet));
+		assertEquals(Integer.valueOf(1), multipleCache.get("key", loads::incrementAndGet));
+
+		Thread.sleep(1100L);
+		assertEquals(Integer.valueOf(1), multipleCache.get("key", loads::incrementAndGet));
+		for (int i = 0; i < 50 && loads.get() < 2; i++) {
+			Thread.sleep(20L);
+		}
+		Thread.sleep(20L);
+		assertEquals(Integer.valueOf(2), multipleCache.get("key", loads::incrementAndGet));
+		assertEquals(1L, multipleCache.getSoftReloads().sum());
+	}
+}
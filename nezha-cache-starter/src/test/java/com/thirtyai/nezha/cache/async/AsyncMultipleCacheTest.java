@@ -0,0 +1,94 @@
+package com.thirtyai.nezha.cache.async;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.thirtyai.nezha.cache.MultipleCache;
+import com.thirtyai.nezha.cache.message.CacheKeyMessagePubSub;
+import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * async multiple cache test
+ */
+public class AsyncMultipleCacheTest {
+
+	@Test
+	public void concurrentLoadsShareOneSubscription() {
+		AsyncMultipleCache asyncCache = new AsyncMultipleCache(caffeineCache(item("users")), null);
+		AtomicInteger loads = new AtomicInteger();
+		Mono<String> first = asyncCache.get("user1", () -> Mono.delay(Duration.ofMillis(50)).map(tick -> "name" + loads.incrementAndGet()));
+		Mono<String> second = asyncCache.get("user1", () -> Mono.just("name" + loads.incrementAndGet()));
+		assertEquals(Arrays.asList("name1", "name1"), Mono.zip(first, second).map(tuple -> Arrays.asList(tuple.getT1(), tuple.getT2())).block());
+		assertEquals(1, loads.get());
+		assertEquals("name1", asyncCache.get("user1").block().get());
+	}
+
+	@Test
+	public void putEvictAndGetAllOfTheRedisTier() {
+		MultipleCache multipleCache = new MultipleCache(item("config#r"), null, new ConcurrentMapCache("config#r"), mock(CacheKeyMessagePubSub.class));
+		AsyncMultipleCache asyncCache = new AsyncMultipleCache(multipleCache, null);
+		asyncCache.put("a", "1").block();
+		asyncCache.put("b", "2").block();
+		Map<Object, Object> values = asyncCache.getAll(Arrays.asList("a", "b", "c")).block();
+		assertEquals(2, values.size());
+		assertEquals("2", values.get("b"));
+
+		asyncCache.evict("a").block();
+		assertNull(asyncCache.get("a").block());
+		assertEquals("2", asyncCache.getFuture("b").join().get());
+	}
+
+	@Test
+	public void rejectedKeyIsEmptyButLoadedThroughTheLoader() {
+		NezhaMultipleCacheProperties.CacheItem item = item("bloom");
+		item.setBloomFilterExpectedInsertions(100L);
+		MultipleCache multipleCache = caffeineCache(item);
+		multipleCache.seedBloomFilter(Collections.singletonList("present"));
+		AsyncMultipleCache asyncCache = new AsyncMultipleCache(multipleCache, null);
+		AtomicInteger loads = new AtomicInteger();
+
+		assertNull(asyncCache.get("created").block());
+		assertEquals("value1", asyncCache.get("created", () -> Mono.just("value" + loads.incrementAndGet())).block());
+		assertEquals("value1", asyncCache.get("created").block().get());
+		assertEquals("value1", asyncCache.get("created", () -> Mono.just("value" + loads.incrementAndGet())).block());
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void cachedNullSentinelIsResolvedWithoutRedis() {
+		NezhaMultipleCacheProperties.CacheItem item = item("negative");
+		item.setNegativeTtlSeconds(60);
+		Cache redis = mock(Cache.class);
+		MultipleCache multipleCache = new MultipleCache(item, new CaffeineCache("negative", Caffeine.newBuilder().build(), true), redis, mock(CacheKeyMessagePubSub.class));
+		multipleCache.getCaffeine().put("absent", null);
+		multipleCache.getCaffeine().put("present", "value");
+		AsyncMultipleCache asyncCache = new AsyncMultipleCache(multipleCache, null);
+
+		assertEquals(Collections.singletonMap("present", "value"), asyncCache.getAll(Arrays.asList("absent", "present")).block());
+		verifyNoInteractions(redis);
+	}
+
+	private static NezhaMultipleCacheProperties.CacheItem item(String name) {
+		NezhaMultipleCacheProperties.CacheItem item = new NezhaMultipleCacheProperties.CacheItem();
+		item.setName(name);
+		return item;
+	}
+
+	private static MultipleCache caffeineCache(NezhaMultipleCacheProperties.CacheItem item) {
+		return new MultipleCache(item, new CaffeineCache(item.getName(), Caffeine.newBuilder().build(), false), null, mock(CacheKeyMessagePubSub.class));
+	}
+}
@@ -0,0 +1,52 @@
+package com.thirtyai.nezha.cache.config;
+
+import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * nezha multiple cache configuration test
+ */
+public class NezhaMultipleCacheConfigurationTest {
+
+	@Test(expected = IllegalStateException.class)
+	public void clientTrackingFailsWithSsl() {
+		RedisProperties redisProperties = new RedisProperties();
+		redisProperties.setSsl(true);
+		configuration(redisProperties).clientTrackingInvalidator();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void clientTrackingFailsWithSentinel() {
+		RedisProperties redisProperties = new RedisProperties();
+		RedisProperties.Sentinel sentinel = new RedisProperties.Sentinel();
+		sentinel.setMaster("master");
+		sentinel.setNodes(Collections.singletonList("127.0.0.1:26379"));
+		redisProperties.setSentinel(sentinel);
+		configuration(redisProperties).clientTrackingInvalidator();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void clientTrackingFailsWithCluster() {
+		RedisProperties redisProperties = new RedisProperties();
+		RedisProperties.Cluster cluster = new RedisProperties.Cluster();
+		cluster.setNodes(Collections.singletonList("127.0.0.1:7000"));
+		redisProperties.setCluster(cluster);
+		configuration(redisProperties).clientTrackingInvalidator();
+	}
+
+	@SuppressWarnings("unchecked")
+	private NezhaMultipleCacheConfiguration configuration(RedisProperties redisProperties) {
+		ObjectProvider<RedisProperties> redisPropertiesObjectProvider = mock(ObjectProvider.class);
+		when(redisPropertiesObjectProvider.getIfAvailable(any())).thenReturn(redisProperties);
+		return new NezhaMultipleCacheConfiguration(null, null, mock(ObjectProvider.class), null, new NezhaMultipleCacheProperties(),
+			mock(ObjectProvider.class), redisPropertiesObjectProvider, mock(ObjectProvider.class), mock(ObjectProvider.class));
+	}
+}
@@ -0,0 +1,119 @@
+package com.thirtyai.nezha.cache.message;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.thirtyai.nezha.cache.MultipleCache;
+import com.thirtyai.nezha.cache.MultipleCacheManager;
+import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
+import com.thirtyai.nezha.redis.operator.RedisOperator;
+import org.junit.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * cache key message pub sub test, two nodes share one redis stand-in and a loopback channel.
+ */
+public class CacheKeyMessagePubSubTest {
+	private static final String CACHE_NAME = "test";
+	private static final String KEY = "key";
+
+	@Test
+	public void selfEchoSuppressionRaisesHitRatio() throws Exception {
+		double plain = writerReaderHitRatio(false);
+		double suppressed = writerReaderHitRatio(true);
+		assertTrue("suppressed " + suppressed + " should beat plain " + plain, suppressed > plain);
+	}
+
+	@Test
+	public void remoteInvalidationAlwaysEvicts() throws Exception {
+		Cluster cluster = new Cluster(true);
+		cluster.writer.put(KEY, "v1");
+		Thread.sleep(20);
+		assertEquals("v1", cluster.reader.get(KEY).get());
+		cluster.deliver();
+		assertNull(cluster.reader.getCaffeine().get(KEY));
+	}
+
+	@Test
+	public void staleEntryIsEvicted() {
+		Cluster cluster = new Cluster(true);
+		cluster.writer.put(KEY, "v1");
+		cluster.deliver();
+		assertEquals("v1", cluster.reader.get(KEY).get());
+		cluster.writer.put(KEY, "v2");
+		cluster.deliver();
+		assertEquals("v2", cluster.reader.get(KEY).get());
+	}
+
+	private double writerReaderHitRatio(boolean suppressSelfEcho) throws Exception {
+		Cluster cluster = new Cluster(suppressSelfEcho);
+		for (int round = 0; round < 50; round++) {
+			cluster.writer.put(KEY, round);
+			Thread.sleep(20);
+			cluster.writer.get(KEY);
+			cluster.deliver();
+			for (int i = 0; i < 10; i++) {
+				assertEquals(round, cluster.writer.get(KEY).get());
+				assertEquals(round, cluster.reader.get(KEY).get());
+			}
+		}
+		return (nativeCache(cluster.writer).stats().hitRate() + nativeCache(cluster.reader).stats().hitRate()) / 2;
+	}
+
+	private static com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache(MultipleCache multipleCache) {
+		return ((CaffeineCache) multipleCache.getCaffeine()).getNativeCache();
+	}
+
+	/**
+	 * two nodes, messages are queued until {@link #deliver()} like a slow pub sub channel
+	 */
+	private static class Cluster {
+		private final List<CacheKeyOperateMessage> channel = new ArrayList<>();
+		private final List<CacheKeyMessagePubSub> subscribers = new ArrayList<>();
+		private final Cache redis = new ConcurrentMapCache(CACHE_NAME);
+		private final MultipleCache writer;
+		private final MultipleCache reader;
+
+		Cluster(boolean suppressSelfEcho) {
+			NezhaMultipleCacheProperties properties = new NezhaMultipleCacheProperties();
+			properties.setInvalidationFlushMillis(0L);
+			properties.setInvalidationSuppressSelfEcho(suppressSelfEcho);
+			this.writer = node(properties);
+			this.reader = node(properties);
+		}
+
+		private MultipleCache node(NezhaMultipleCacheProperties properties) {
+			CacheKeyMessagePubSub pubSub = new CacheKeyMessagePubSub(new RedisOperator(null), properties) {
+				@Override
+				public void publish(CacheKeyOperateMessage message) {
+					channel.add(message);
+				}
+			};
+			NezhaMultipleCacheProperties.CacheItem cacheItem = new NezhaMultipleCacheProperties.CacheItem();
+			cacheItem.setName(CACHE_NAME);
+			Cache caffeine = new CaffeineCache(CACHE_NAME, Caffeine.newBuilder().expireAfterWrite(5, TimeUnit.MINUTES).recordStats().build());
+			MultipleCache multipleCache = new MultipleCache(cacheItem, caffeine, redis, pubSub);
+			MultipleCacheManager multipleCacheManager = mock(MultipleCacheManager.class);
+			when(multipleCacheManager.getCache(CACHE_NAME)).thenReturn(multipleCache);
+			pubSub.setMultipleCacheManager(multipleCacheManager);
+			subscribers.add(pubSub);
+			return multipleCache;
+		}
+
+		void deliver() {
+			List<CacheKeyOperateMessage> messages = new ArrayList<>(channel);
+			channel.clear();
+			messages.forEach(message -> subscribers.forEach(subscriber -> subscriber.onMessage(message)));
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package com.thirtyai.nezha.cache.redis;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * redis cache value compressor test
+ */
+public class RedisCacheValueCompressorTest {
+
+	@Test
+	public void largeValueIsCompressedAndRestored() {
+		RedisCacheValueCompressor compressor = new RedisCacheValueCompressor(1024, 1);
+		StringBuilder json = new StringBuilder("[");
+		for (int i = 0; i < 2000; i++) {
+			json.append("{\"id\":").append(i).append(",\"name\":\"item\",\"enabled\":true},");
+		}
+		byte[] value = json.append("{}]").toString().getBytes(StandardCharsets.UTF_8);
+
+		byte[] stored = compressor.compress(value);
+		assertTrue(stored.length < value.length);
+		assertArrayEquals(value, compressor.decompress(stored));
+		assertEquals(1, compressor.getCompressedCount().sum());
+		assertTrue(compressor.getCompressionRatio() < 0.5);
+	}
+
+	@Test
+	public void smallAndLegacyValuesAreKeptAsTheyAre() {
+		RedisCacheValueCompressor compressor = new RedisCacheValueCompressor(1024, 1);
+		byte[] value = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+		assertSame(value, compressor.compress(value));
+		assertSame(value, compressor.decompress(value));
+
+		byte[] compressed = new RedisCacheValueCompressor(0, 1).compress(new byte[4096]);
+		assertArrayEquals(new byte[4096], new RedisCacheValueCompressor(-1, 1).decompress(compressed));
+	}
+}
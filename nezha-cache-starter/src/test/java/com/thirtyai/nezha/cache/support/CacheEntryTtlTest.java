@@ -0,0 +1,44 @@
+package com.thirtyai.nezha.cache.support;
+
+import org.junit.Test;
+import org.springframework.cache.support.NullValue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * cache entry ttl test
+ */
+public class CacheEntryTtlTest {
+
+	@Test
+	public void jitterShortensTheTtlWithinThePercent() {
+		CacheEntryTtl entryTtl = new CacheEntryTtl(10000L, -1L, 20, -1L);
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (int i = 0; i < 1000; i++) {
+			long ttl = entryTtl.ttlMillis("value");
+			min = Math.min(min, ttl);
+			max = Math.max(max, ttl);
+		}
+		assertTrue(min >= 8000L);
+		assertTrue(max <= 10000L);
+		assertTrue(max - min > 1000L);
+	}
+
+	@Test
+	public void nullSentinelUsesNegativeTtl() {
+		CacheEntryTtl entryTtl = new CacheEntryTtl(10000L, 1000L, 20, -1L);
+		assertEquals(1000L, entryTtl.ttlMillis(NullValue.INSTANCE));
+	}
+
+	@Test
+	public void staleWithinTheSoftWindow() {
+		CacheEntryTtl entryTtl = new CacheEntryTtl(10000L, -1L, 0, 6000L);
+		assertFalse(entryTtl.isStale(5000L));
+		assertTrue(entryTtl.isStale(4000L));
+		assertFalse(entryTtl.isStale(-1L));
+		assertFalse(new CacheEntryTtl(10000L, -1L, 0, -1L).isStale(0L));
+	}
+}
@@ -0,0 +1,70 @@
+package com.thirtyai.nezha.cache.support;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * caffeine heap budget test
+ */
+public class CaffeineHeapBudgetTest {
+
+	@Test
+	public void budgetIsReallocatedByShares() {
+		CaffeineHeapBudget budget = new CaffeineHeapBudget(900L);
+		CaffeineCache first = weighted("first", 900L);
+		CaffeineCache second = weighted("second", 900L);
+
+		budget.register(first, 1);
+		assertEquals(900L, budget.allocated(first));
+
+		budget.register(second, 2);
+		assertEquals(300L, budget.allocated(first));
+		assertEquals(600L, budget.allocated(second));
+	}
+
+	@Test
+	public void weightedCacheStaysWithinItsBytes() {
+		CaffeineCache cache = weighted("cache", 64 * 1024L);
+		for (int i = 0; i < 1000; i++) {
+			cache.put("key" + i, Collections.nCopies(10, "value-" + i));
+		}
+		cache.getNativeCache().cleanUp();
+		long weighted = cache.getNativeCache().policy().eviction().get().weightedSize().getAsLong();
+		assertTrue(weighted <= 64 * 1024L);
+		assertTrue(cache.getNativeCache().estimatedSize() < 1000);
+	}
+
+	@Test
+	public void weigherGrowsWithTheGraph() {
+		long small = ObjectSizeWeigher.INSTANCE.weigh("k", Arrays.asList("a", "b"));
+		long large = ObjectSizeWeigher.INSTANCE.weigh("k", Collections.nCopies(100, "abcdefghij"));
+		assertTrue(large > small * 10);
+	}
+
+	@Test
+	public void weigherCountsSharedAndCyclicObjectsOnce() {
+		Map<String, Object> cyclic = new HashMap<>();
+		cyclic.put("self", cyclic);
+		cyclic.put("list", Arrays.asList(cyclic, cyclic));
+		long size = ObjectSizeWeigher.INSTANCE.estimate(cyclic);
+		assertTrue(size > 0 && size < 1024);
+		Object[] chain = new Object[0];
+		for (int i = 0; i < 100000; i++) {
+			chain = new Object[]{chain};
+		}
+		assertTrue(ObjectSizeWeigher.INSTANCE.estimate(chain) < 100000L * 24);
+	}
+
+	private static CaffeineCache weighted(String name, long maximumWeight) {
+		return new CaffeineCache(name, Caffeine.newBuilder().maximumWeight(maximumWeight).weigher(ObjectSizeWeigher.INSTANCE).executor(Runnable::run).build());
+	}
+}
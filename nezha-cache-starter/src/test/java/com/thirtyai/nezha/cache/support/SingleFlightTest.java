@@ -0,0 +1,79 @@
+package com.thirtyai.nezha.cache.support;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * single flight test
+ */
+public class SingleFlightTest {
+
+	@Test
+	public void concurrentCallersShareOneComputation() throws Exception {
+		SingleFlight singleFlight = new SingleFlight();
+		AtomicInteger computations = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		try {
+			List<Future<String>> futures = new ArrayList<>();
+			futures.add(executor.submit(() -> singleFlight.execute("key", () -> {
+				computations.incrementAndGet();
+				started.countDown();
+				await(release);
+				return "value";
+			})));
+			started.await(5, TimeUnit.SECONDS);
+			CountDownLatch arrived = new CountDownLatch(15);
+			for (int i = 0; i < 15; i++) {
+				futures.add(executor.submit(() -> {
+					arrived.countDown();
+					return singleFlight.execute("key", () -> {
+						computations.incrementAndGet();
+						return "other";
+					});
+				}));
+			}
+			arrived.await(5, TimeUnit.SECONDS);
+			Thread.sleep(200);
+			release.countDown();
+			for (Future<String> future : futures) {
+				assertEquals("value", future.get(5, TimeUnit.SECONDS));
+			}
+			assertEquals(1, computations.get());
+			assertEquals(0, singleFlight.inFlightCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void failureIsRethrownAndNotRetained() {
+		SingleFlight singleFlight = new SingleFlight();
+		try {
+			singleFlight.execute("key", () -> {
+				throw new IllegalStateException("boom");
+			});
+		} finally {
+			assertEquals(0, singleFlight.inFlightCount());
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
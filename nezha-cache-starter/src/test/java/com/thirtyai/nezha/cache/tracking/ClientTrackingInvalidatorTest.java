@@ -0,0 +1,205 @@
+package com.thirtyai.nezha.cache.tracking;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.thirtyai.nezha.cache.MultipleCache;
+import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * client tracking invalidator test against an in-process RESP2 stand-in of redis 6 client tracking
+ */
+public class ClientTrackingInvalidatorTest {
+	private static final String PREFIX = "test::";
+
+	private TrackingServer server;
+	private MultipleCache multipleCache;
+	private ClientTrackingInvalidator invalidator;
+	private final Semaphore connected = new Semaphore(0);
+
+	@Before
+	public void setUp() throws Exception {
+		server = new TrackingServer();
+		NezhaMultipleCacheProperties.CacheItem cacheItem = new NezhaMultipleCacheProperties.CacheItem();
+		cacheItem.setName("test");
+		multipleCache = new MultipleCache(cacheItem, new CaffeineCache("test", Caffeine.newBuilder().build()), new ConcurrentMapCache("test"), null);
+		invalidator = new ClientTrackingInvalidator(new RespClientTrackingConnection("127.0.0.1", server.port(), null, 1000, 5000, 20L)) {
+			@Override
+			public void onConnected() {
+				super.onConnected();
+				connected.release();
+			}
+		};
+		invalidator.track(multipleCache, PREFIX);
+		assertTrue(connected.tryAcquire(5, TimeUnit.SECONDS));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		invalidator.destroy();
+		server.close();
+	}
+
+	@Test
+	public void trackingIsRedirectedToItselfInBroadcastMode() {
+		assertTrue(server.commands.contains(Arrays.asList("CLIENT", "TRACKING", "on", "REDIRECT", "7", "BCAST", "PREFIX", PREFIX)));
+		assertTrue(server.commands.contains(Arrays.asList("SUBSCRIBE", RespClientTrackingConnection.INVALIDATE_CHANNEL)));
+	}
+
+	@Test
+	public void pushedKeysEvictCaffeineEntries() throws Exception {
+		multipleCache.getCaffeine().put("a", 1);
+		multipleCache.getCaffeine().put("b", 2);
+		multipleCache.getCaffeine().put("c", 3);
+		server.push("*2\r\n$7\r\ntest::a\r\n$7\r\ntest::b\r\n");
+		await(() -> multipleCache.getCaffeine().get("a") == null && multipleCache.getCaffeine().get("b") == null);
+		assertNotNull(multipleCache.getCaffeine().get("c"));
+
+		server.push("$-1\r\n");
+		await(() -> multipleCache.getCaffeine().get("c") == null);
+	}
+
+	@Test
+	public void lostConnectionClearsCaffeineAndReconnects() throws Exception {
+		multipleCache.getCaffeine().put("a", 1);
+		server.dropClient();
+		assertTrue(connected.tryAcquire(5, TimeUnit.SECONDS));
+		assertNull(multipleCache.getCaffeine().get("a"));
+
+		multipleCache.getCaffeine().put("b", 2);
+		server.push("*1\r\n$7\r\ntest::b\r\n");
+		await(() -> multipleCache.getCaffeine().get("b") == null);
+	}
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * redis stand-in, answers the tracking handshake and pushes invalidation messages
+	 */
+	private static class TrackingServer {
+		private final ServerSocket serverSocket = new ServerSocket(0);
+		private final List<List<String>> commands = new CopyOnWriteArrayList<>();
+		private final Semaphore subscribed = new Semaphore(0);
+		private volatile Socket client;
+
+		TrackingServer() throws IOException {
+			Thread acceptor = new Thread(this::accept);
+			acceptor.setDaemon(true);
+			acceptor.start();
+		}
+
+		int port() {
+			return serverSocket.getLocalPort();
+		}
+
+		void push(String payload) throws Exception {
+			assertTrue(subscribed.tryAcquire(5, TimeUnit.SECONDS));
+			subscribed.release();
+			write(client, "*3\r\n$7\r\nmessage\r\n$20\r\n__redis__:invalidate\r\n" + payload);
+		}
+
+		void dropClient() throws Exception {
+			assertTrue(subscribed.tryAcquire(5, TimeUnit.SECONDS));
+			client.close();
+		}
+
+		void close() throws IOException {
+			serverSocket.close();
+			if (client != null) {
+				client.close();
+			}
+		}
+
+		private void accept() {
+			while (!serverSocket.isClosed()) {
+				try {
+					Socket socket = serverSocket.accept();
+					client = socket;
+					serve(socket);
+				} catch (IOException ignored) {
+					// dropped client or closed server
+				}
+			}
+		}
+
+		private void serve(Socket socket) throws IOException {
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			while (true) {
+				List<String> command = readCommand(in);
+				commands.add(command);
+				switch (command.get(0)) {
+					case "CLIENT":
+						write(socket, "ID".equals(command.get(1)) ? ":7\r\n" : "+OK\r\n");
+						break;
+					case "SUBSCRIBE":
+						write(socket, "*3\r\n$9\r\nsubscribe\r\n$20\r\n__redis__:invalidate\r\n:1\r\n");
+						subscribed.release();
+						break;
+					case "PING":
+						write(socket, "*2\r\n$4\r\npong\r\n$0\r\n\r\n");
+						break;
+					default:
+						write(socket, "+OK\r\n");
+				}
+			}
+		}
+
+		private static synchronized void write(Socket socket, String reply) throws IOException {
+			OutputStream out = socket.getOutputStream();
+			out.write(reply.getBytes(StandardCharsets.UTF_8));
+			out.flush();
+		}
+
+		private static List<String> readCommand(InputStream in) throws IOException {
+			int size = Integer.parseInt(readLine(in).substring(1));
+			List<String> command = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				readLine(in);
+				command.add(readLine(in));
+			}
+			return command;
+		}
+
+		private static String readLine(InputStream in) throws IOException {
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			int current;
+			while ((current = in.read()) != '\r') {
+				if (current < 0) {
+					throw new IOException("closed");
+				}
+				line.write(current);
+			}
+			in.read();
+			return new String(line.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.thirtyai.nezha.cache.warmup;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.thirtyai.nezha.cache.CacheWarmUpStrategy;
+import com.thirtyai.nezha.cache.MultipleCache;
+import com.thirtyai.nezha.cache.MultipleCacheManager;
+import com.thirtyai.nezha.cache.message.CacheKeyMessagePubSub;
+import com.thirtyai.nezha.cache.props.NezhaMultipleCacheProperties;
+import com.thirtyai.nezha.common.util.JsonUtil;
+import com.thirtyai.nezha.redis.operator.RedisOperator;
+import com.thirtyai.nezha.redis.serializer.JsonRedisValueSerializer;
+import com.thirtyai.nezha.redis.serializer.RedisValueSerializerRegistry;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * multiple cache warmer test
+ */
+public class MultipleCacheWarmerTest {
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void snapshotIsRestoredIntoTheCaffeineTier() throws Exception {
+		NezhaMultipleCacheProperties properties = properties();
+		MultipleCacheManager before = manager(properties);
+		MultipleCache cache = before.getCache("users");
+		for (int i = 0; i < 10; i++) {
+			cache.put("user" + i, "name" + i);
+		}
+		new MultipleCacheWarmer(before, properties, null, registry()).destroy();
+
+		MultipleCacheManager after = manager(properties);
+		assertNull(after.getCache("users").get("user3", String.class));
+		new MultipleCacheWarmer(after, properties, null, registry()).afterPropertiesSet();
+		assertEquals("name3", after.getCache("users").get("user3", String.class));
+		Cache<Object, Object> nativeCache = ((CaffeineCache) after.getCache("users").getCaffeine()).getNativeCache();
+		assertEquals(10L, nativeCache.estimatedSize());
+		long remainingMillis = nativeCache.policy().expireVariably().get().getExpiresAfter("user3", TimeUnit.MILLISECONDS).getAsLong();
+		assertTrue(remainingMillis > 0 && remainingMillis <= TimeUnit.SECONDS.toMillis(properties.getCaffeine().get(0).getTtlSeconds()));
+	}
+
+	@Test
+	public void snapshotOfAnotherFormatIsSkipped() throws Exception {
+		NezhaMultipleCacheProperties properties = properties();
+		Path snapshot = Paths.get(properties.getWarmUpSnapshotDir(), "users.snapshot");
+		try (ObjectOutputStream outputStream = new ObjectOutputStream(Files.newOutputStream(snapshot))) {
+			outputStream.writeObject(new HashMap<>(Collections.singletonMap("user3", "name3")));
+		}
+		MultipleCacheManager multipleCacheManager = manager(properties);
+		assertEquals(0, new MultipleCacheWarmer(multipleCacheManager, properties, null, registry()).warmUp(multipleCacheManager.getCache("users")));
+		assertNull(multipleCacheManager.getCache("users").get("user3", String.class));
+	}
+
+	private RedisValueSerializerRegistry registry() {
+		return new RedisValueSerializerRegistry(Collections.singletonList(new JsonRedisValueSerializer(JsonUtil.setJsonObjectMapperParams(null))), JsonRedisValueSerializer.NAME);
+	}
+
+	private NezhaMultipleCacheProperties properties() {
+		NezhaMultipleCacheProperties properties = new NezhaMultipleCacheProperties();
+		properties.setWarmUpSnapshotDir(temporaryFolder.getRoot().getAbsolutePath());
+		NezhaMultipleCacheProperties.CacheItem item = new NezhaMultipleCacheProperties.CacheItem();
+		item.setName("users");
+		item.setWarmUp(CacheWarmUpStrategy.Snapshot);
+		properties.setCaffeine(Collections.singletonList(item));
+		return properties;
+	}
+
+	@SuppressWarnings("unchecked")
+	private MultipleCacheManager manager(NezhaMultipleCacheProperties properties) {
+		MultipleCacheManager multipleCacheManager = new MultipleCacheManager(properties, mock(CacheKeyMessagePubSub.class),
+			mock(ObjectProvider.class), mock(RedisOperator.class), mock(RedisValueSerializerRegistry.class));
+		multipleCacheManager.afterPropertiesSet();
+		return multipleCacheManager;
+	}
+}
@@ -16,12 +16,12 @@
 package com.thirtyai.nezha.redis.config;
 
 import com.thirtyai.nezha.redis.limit.RedisLimitService;
+import com.thirtyai.nezha.redis.operator.RedisOperator;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
-import org.springframework.data.redis.core.RedisTemplate;
 
 /**
  * @author kyleju
@@ -33,7 +33,7 @@ import org.springframework.data.redis.core.RedisTemplate;
 class RedisLimitConfiguration {
 
 	@Bean("redisLimit")
-	public RedisLimitService redisLock(RedisTemplate<String, Object> redisTemplate) {
-		return new RedisLimitService(redisTemplate);
+	public RedisLimitService redisLock(RedisOperator redisOperator) {
+		return new RedisLimitService(redisOperator.getRedisTemplate(), redisOperator.getScriptRegistry());
 	}
 }
@@ -16,12 +16,15 @@
 package com.thirtyai.nezha.redis.config;
 
 import com.thirtyai.nezha.redis.lock.RedisLockService;
+import com.thirtyai.nezha.redis.operator.RedisOperator;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 /**
  * @author kyleju
@@ -33,7 +36,9 @@ import org.springframework.data.redis.core.RedisTemplate;
 class RedisLockConfiguration {
 
 	@Bean("redisLock")
-	public RedisLockService redisLock(RedisTemplate<String, Object> redisTemplate) {
-		return new RedisLockService(redisTemplate);
+	public RedisLockService redisLock(RedisOperator redisOperator, ObjectProvider<RedisMessageListenerContainer> redisMessageListenerContainerProvider) {
+		RedisLockService redisLockService = new RedisLockService(redisOperator.getRedisTemplate(), redisOperator.getScriptRegistry());
+		redisMessageListenerContainerProvider.ifAvailable(container -> container.addMessageListener(redisLockService, ChannelTopic.of(RedisLockService.RELEASE_CHANNEL)));
+		return redisLockService;
 	}
 }
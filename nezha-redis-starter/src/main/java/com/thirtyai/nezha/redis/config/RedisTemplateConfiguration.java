@@ -17,6 +17,13 @@ package com.thirtyai.nezha.redis.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.thirtyai.nezha.redis.operator.RedisOperator;
+import com.thirtyai.nezha.redis.operator.RedisWriteBatcher;
+import com.thirtyai.nezha.redis.props.NezhaRedisProperties;
+import com.thirtyai.nezha.redis.serializer.IRedisValueSerializer;
+import com.thirtyai.nezha.redis.serializer.JdkRedisValueSerializer;
+import com.thirtyai.nezha.redis.serializer.JsonRedisValueSerializer;
+import com.thirtyai.nezha.redis.serializer.RedisValueSerializerRegistry;
+import com.thirtyai.nezha.redis.serializer.SmileRedisValueSerializer;
 import com.thirtyai.nezha.common.util.JsonUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.InitializingBean;
@@ -24,14 +31,19 @@ import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * redis template configuration
  *
@@ -41,12 +53,29 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
 @Configuration
 @AutoConfigureAfter({RedisAutoConfiguration.class})
 @ConditionalOnProperty(prefix = "nezha.starters", name = "redis", havingValue = "true")
+@EnableConfigurationProperties(NezhaRedisProperties.class)
 @RequiredArgsConstructor
-@SuppressWarnings("unchecked")
 public class RedisTemplateConfiguration implements InitializingBean {
 	private final RedisConnectionFactory redisConnectionFactory;
 	private ObjectMapper objectMapper;
 	private final ObjectProvider<ObjectMapper> objectMapperProvider;
+	private final ObjectProvider<List<IRedisValueSerializer>> redisValueSerializersProvider;
+	private final NezhaRedisProperties nezhaRedisProperties;
+
+	/**
+	 * redis value serializer registry, json/smile/jdk and the custom {@link IRedisValueSerializer} beans
+	 *
+	 * @return value {@link RedisValueSerializerRegistry}
+	 */
+	@Bean
+	public RedisValueSerializerRegistry redisValueSerializerRegistry() {
+		List<IRedisValueSerializer> serializers = new ArrayList<>();
+		serializers.add(new JsonRedisValueSerializer(objectMapper));
+		serializers.add(new SmileRedisValueSerializer());
+		serializers.add(new JdkRedisValueSerializer());
+		serializers.addAll(redisValueSerializersProvider.getIfAvailable(Collections::emptyList));
+		return new RedisValueSerializerRegistry(serializers, nezhaRedisProperties.getSerializer());
+	}
 
 	/**
 	 * redis value serializer
@@ -54,8 +83,9 @@ public class RedisTemplateConfiguration implements InitializingBean {
 	 * @return value {@link RedisSerializer}
 	 */
 	@Bean
+	@Primary
 	public RedisSerializer<Object> redisSerializer() {
-		return getJackson2JsonRedisSerializer();
+		return redisValueSerializerRegistry().getDefaultSerializer();
 	}
 
 	/**
@@ -84,17 +114,24 @@ public class RedisTemplateConfiguration implements InitializingBean {
 	 */
 	@Bean("redisOperator")
 	public RedisOperator redisOperator(RedisTemplate<String, Object> redisTemplate) {
-		return new RedisOperator(redisTemplate);
+		RedisOperator redisOperator = new RedisOperator(redisTemplate);
+		redisOperator.setPubSubRawJson(nezhaRedisProperties.isPubSubRawJson());
+		return redisOperator;
+	}
+
+	/**
+	 * redis write batcher, the flusher thread starts with the first submitted command
+	 *
+	 * @param redisOperator redis operator
+	 * @return value {@link RedisWriteBatcher}
+	 */
+	@Bean
+	public RedisWriteBatcher redisWriteBatcher(RedisOperator redisOperator) {
+		return new RedisWriteBatcher(redisOperator, nezhaRedisProperties.getBatcherLingerMicros(), nezhaRedisProperties.getBatcherMaxCommands());
 	}
 
 	@Override
 	public void afterPropertiesSet() {
 		objectMapper = JsonUtil.setJsonObjectMapperParams(objectMapperProvider.getIfAvailable());
 	}
-
-	private Jackson2JsonRedisSerializer getJackson2JsonRedisSerializer() {
-		Jackson2JsonRedisSerializer jackson2JsonRedisSerializer = new Jackson2JsonRedisSerializer<>(Object.class);
-		jackson2JsonRedisSerializer.setObjectMapper(objectMapper);
-		return jackson2JsonRedisSerializer;
-	}
 }
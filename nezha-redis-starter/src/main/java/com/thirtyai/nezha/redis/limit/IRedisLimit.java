@@ -33,4 +33,34 @@ public interface IRedisLimit {
 	 */
 	Long limit(String key, long max, long ttl, TimeUnit timeUnit);
 
+	/**
+	 * limit logic with the algorithm, the sliding window by default
+	 *
+	 * @param key       key
+	 * @param max       max number
+	 * @param ttl       window
+	 * @param timeUnit  window time unit
+	 * @param algorithm {@link RateLimitAlgorithm}
+	 * @return 0 when limited
+	 */
+	default Long limit(String key, long max, long ttl, TimeUnit timeUnit, RateLimitAlgorithm algorithm) {
+		return limit(key, max, ttl, timeUnit);
+	}
+
+	/**
+	 * try acquire one permit admitted locally from quota leased in slices of leaseSize,
+	 * checks redis on every call by default.
+	 *
+	 * @param key       key
+	 * @param max       max number
+	 * @param ttl       window
+	 * @param timeUnit  window time unit
+	 * @param leaseSize permits leased per round trip
+	 * @return true: admitted
+	 */
+	default boolean tryAcquire(String key, long max, long ttl, TimeUnit timeUnit, long leaseSize) {
+		Long limit = limit(key, max, ttl, timeUnit);
+		return limit != null && limit != 0L;
+	}
+
 }
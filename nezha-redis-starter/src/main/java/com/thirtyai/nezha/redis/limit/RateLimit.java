@@ -62,4 +62,20 @@ public @interface RateLimit {
 	 * @return TimeUnit
 	 */
 	TimeUnit timeUnit() default TimeUnit.MINUTES;
+
+	/**
+	 * limit algorithm，default sliding window
+	 *
+	 * @return RateLimitAlgorithm
+	 */
+	RateLimitAlgorithm algorithm() default RateLimitAlgorithm.SlidingWindow;
+
+	/**
+	 * permits leased from redis per round trip and admitted locally, default 0: every call checks redis.
+	 * leased limits use fixed windows and ignore the algorithm, larger leases mean fewer round trips,
+	 * but the slices left on other nodes at the end of a window are not admitted.
+	 *
+	 * @return lease size
+	 */
+	long leaseSize() default 0L;
 }
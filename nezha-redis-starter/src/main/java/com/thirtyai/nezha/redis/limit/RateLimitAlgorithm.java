@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.redis.limit;
+
+/**
+ * rate limit algorithm
+ *
+ * @author kyleju
+ */
+public enum RateLimitAlgorithm {
+	/**
+	 * sorted set sliding window, one member per admitted request, exact but O(log N) and max members per key
+	 */
+	SlidingWindow,
+	/**
+	 * generic cell rate algorithm, one theoretical arrival time string per key, O(1),
+	 * max requests are spread over the window with a burst of max.
+	 */
+	Gcra
+}
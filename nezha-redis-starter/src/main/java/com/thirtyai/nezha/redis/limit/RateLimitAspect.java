@@ -60,9 +60,15 @@ public class RateLimitAspect extends AbstractExpressionEvaluator {
 			}
 		}
 
-		Long limit = redisLimitService.limit(key, rateLimit.max(), rateLimit.ttl(), rateLimit.timeUnit());
-		if (limit == 0) {
-			throw new I18nException(Status.Redis_Limit_Is_Limit);
+		if (rateLimit.leaseSize() > 0) {
+			if (!redisLimitService.tryAcquire(key, rateLimit.max(), rateLimit.ttl(), rateLimit.timeUnit(), rateLimit.leaseSize())) {
+				throw new I18nException(Status.Redis_Limit_Is_Limit);
+			}
+		} else {
+			Long limit = redisLimitService.limit(key, rateLimit.max(), rateLimit.ttl(), rateLimit.timeUnit(), rateLimit.algorithm());
+			if (limit == 0) {
+				throw new I18nException(Status.Redis_Limit_Is_Limit);
+			}
 		}
 
 		try {
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.redis.limit;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import com.thirtyai.nezha.redis.script.RedisScriptRegistry;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * rate limit quota leases
+ * every node leases slices of the global quota of a fixed window from redis and admits requests locally,
+ * a slice is renewed asynchronously when RENEW_PERCENT of it is left. the global limit is never exceeded,
+ * the slices left on other nodes at the end of a window may under admit, larger leases mean fewer round trips
+ * and a coarser limit. a failed lease rejects the key for ERROR_BACKOFF_MILLIS only, then redis is asked again.
+ *
+ * @author kyleju
+ */
+@Slf4j
+public class RateLimitQuotaLeases {
+	private static final int RENEW_PERCENT = 20;
+	private static final int MAX_KEYS = 10000;
+	private static final long ERROR_BACKOFF_MILLIS = 100L;
+	private static final long LEASE_FAILED = -1L;
+
+	/**
+	 * lease script, KEYS[1] window key, ARGV[1] max, ARGV[2] wanted permits, ARGV[3] window millis,
+	 * returns the granted permits, 0 when the window quota is used up.
+	 */
+	private static final DefaultRedisScript<Long> LEASE_LUA_SCRIPT = new DefaultRedisScript<>(
+		"local max = tonumber(ARGV[1])\n" +
+			"local used = tonumber(redis.call('get', KEYS[1]) or '0')\n" +
+			"local granted = math.min(tonumber(ARGV[2]), max - used)\n" +
+			"if granted <= 0 then\n" +
+			"    return 0\n" +
+			"end\n" +
+			"redis.call('incrby', KEYS[1], granted)\n" +
+			"redis.call('pexpire', KEYS[1], ARGV[3])\n" +
+			"return granted\n"
+		, Long.class
+	);
+
+	private final RedisTemplate<String, Object> redisTemplate;
+	private final RedisScriptRegistry scriptRegistry;
+	private final Map<String, QuotaLease> leases = MapUtil.newConcurrentHashMap();
+	/**
+	 * redis lease round trips count
+	 */
+	@Getter
+	private final LongAdder leaseRequests = new LongAdder();
+
+	public RateLimitQuotaLeases(RedisTemplate<String, Object> redisTemplate, RedisScriptRegistry scriptRegistry) {
+		this.redisTemplate = redisTemplate;
+		this.scriptRegistry = scriptRegistry;
+	}
+
+	/**
+	 * try acquire one permit
+	 *
+	 * @param key       limit key
+	 * @param max       max requests of the window
+	 * @param ttlMillis window millis
+	 * @param leaseSize permits leased per round trip
+	 * @return true: admitted
+	 */
+	public boolean tryAcquire(String key, long max, long ttlMillis, long leaseSize) {
+		long now = System.currentTimeMillis();
+		long window = now / ttlMillis;
+		QuotaLease lease = leases.get(key);
+		if (lease == null || lease.window != window) {
+			lease = newLease(key, window, ttlMillis, now);
+		}
+		if (lease.take()) {
+			renewIfLow(key, lease, max, ttlMillis, leaseSize);
+			return true;
+		}
+		if (lease.exhausted || lease.retryAt > now) {
+			return false;
+		}
+		synchronized (lease) {
+			if (lease.take()) {
+				return true;
+			}
+			if (lease.exhausted || lease.retryAt > now) {
+				return false;
+			}
+			long granted = leaseOrFailed(key, lease, max, ttlMillis, leaseSize);
+			if (granted <= 0) {
+				return false;
+			}
+			lease.remaining.addAndGet(granted - 1);
+			return true;
+		}
+	}
+
+	/**
+	 * lease permits of the window from redis
+	 *
+	 * @param windowKey window key
+	 * @param max       max requests of the window
+	 * @param wanted    wanted permits
+	 * @param ttlMillis window millis
+	 * @return value granted permits, 0 when the window quota is used up.
+	 */
+	protected long lease(String windowKey, long max, long wanted, long ttlMillis) {
+		leaseRequests.increment();
+		RedisCallback<Long> callback = (connection) -> scriptRegistry.eval(connection, LEASE_LUA_SCRIPT, ReturnType.INTEGER, 1, windowKey.getBytes(StandardCharsets.UTF_8), Convert.toStr(max).getBytes(StandardCharsets.UTF_8), Convert.toStr(wanted).getBytes(StandardCharsets.UTF_8), Convert.toStr(ttlMillis).getBytes(StandardCharsets.UTF_8));
+		return Convert.toLong(redisTemplate.execute(callback), 0L);
+	}
+
+	/**
+	 * lease permits and update the lease state, a used up window is exhausted, an error backs off.
+	 *
+	 * @return value granted permits, 0 when used up, LEASE_FAILED on error.
+	 */
+	private long leaseOrFailed(String key, QuotaLease lease, long max, long ttlMillis, long leaseSize) {
+		long granted;
+		try {
+			granted = lease(windowKey(key, lease.window), max, Math.min(leaseSize, max), ttlMillis);
+		} catch (Exception e) {
+			log.error("redis limit lease has an error.", e);
+			lease.retryAt = System.currentTimeMillis() + ERROR_BACKOFF_MILLIS;
+			return LEASE_FAILED;
+		}
+		if (granted <= 0) {
+			lease.exhausted = true;
+		}
+		return granted;
+	}
+
+	private QuotaLease newLease(String key, long window, long ttlMillis, long now) {
+		if (leases.size() > MAX_KEYS) {
+			leases.values().removeIf(lease -> lease.expiresAt < now);
+		}
+		return leases.compute(key, (k, current) -> current != null && current.window == window ? current : new QuotaLease(window, (window + 1) * ttlMillis));
+	}
+
+	private void renewIfLow(String key, QuotaLease lease, long max, long ttlMillis, long leaseSize) {
+		if (lease.exhausted || lease.retryAt > System.currentTimeMillis() || lease.remaining.get() * 100 > leaseSize * RENEW_PERCENT
+			|| !lease.renewing.compareAndSet(false, true)) {
+			return;
+		}
+		ThreadUtil.execute(() -> {
+			try {
+				long granted = leaseOrFailed(key, lease, max, ttlMillis, leaseSize);
+				if (granted > 0) {
+					lease.remaining.addAndGet(granted);
+				}
+			} finally {
+				lease.renewing.set(false);
+			}
+		});
+	}
+
+	private static String windowKey(String key, long window) {
+		return key + ":" + window;
+	}
+
+	private static class QuotaLease {
+		private final long window;
+		private final long expiresAt;
+		private final AtomicLong remaining = new AtomicLong();
+		private final AtomicBoolean renewing = new AtomicBoolean();
+		private volatile boolean exhausted = false;
+		/**
+		 * millis before which a failed lease is not retried
+		 */
+		private volatile long retryAt = 0L;
+
+		private QuotaLease(long window, long expiresAt) {
+			this.window = window;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean take() {
+			for (; ; ) {
+				long current = remaining.get();
+				if (current <= 0) {
+					return false;
+				}
+				if (remaining.compareAndSet(current, current - 1)) {
+					return true;
+				}
+			}
+		}
+	}
+}
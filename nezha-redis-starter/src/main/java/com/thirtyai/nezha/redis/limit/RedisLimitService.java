@@ -16,7 +16,9 @@
 package com.thirtyai.nezha.redis.limit;
 
 import cn.hutool.core.convert.Convert;
-import lombok.RequiredArgsConstructor;
+import cn.hutool.core.lang.UUID;
+import com.thirtyai.nezha.redis.script.RedisScriptRegistry;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.connection.ReturnType;
 import org.springframework.data.redis.core.RedisCallback;
@@ -27,11 +29,15 @@ import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
-@RequiredArgsConstructor
 public class RedisLimitService implements IRedisLimit {
 
 	private final RedisTemplate<String, Object> redisTemplate;
 
+	private final RedisScriptRegistry scriptRegistry;
+
+	@Getter
+	private final RateLimitQuotaLeases quotaLeases;
+
 	private final DefaultRedisScript<Long> Limit_LUA_SCRIPT = new DefaultRedisScript<>(
 		"-- lua 下标从 1 开始\n" +
 			"-- 限流 \n" +
@@ -41,7 +47,7 @@ public class RedisLimitService implements IRedisLimit {
 			"-- 超时时间\n" +
 			"local ttl = tonumber(ARGV[2])\n" +
 			"local now = tonumber(ARGV[3])\n" +
-			"local expired = now - (ttl * 1000)\n" +
+			"local expired = now - ttl\n" +
 			"\n" +
 			"redis.call('zremrangebyscore', key, 0, expired)\n" +
 			"-- 获取当前流量大小\n" +
@@ -51,26 +57,79 @@ public class RedisLimitService implements IRedisLimit {
 			"if nextLimit > max then\n" +
 			"    return 0;\n" +
 			"else\n" +
-			"    redis.call(\"zadd\", key, now, now)\n" +
+			"    redis.call(\"zadd\", key, now, ARGV[4])\n" +
 			"    redis.call(\"pexpire\", key, ttl)\n" +
 			"    return nextLimit\n" +
 			"end\n"
 		, Long.class
 	);
 
+	/**
+	 * gcra script, KEYS[1] limit key, ARGV[1] emission interval millis, ARGV[2] window millis, ARGV[3] now millis,
+	 * the key holds the theoretical arrival time with full precision, a rounded one drifts by the fractional interval
+	 * on every request and denies the last request of a full burst, returns the requests in the window or 0 when limited.
+	 */
+	private final DefaultRedisScript<Long> GCRA_LUA_SCRIPT = new DefaultRedisScript<>(
+		"local interval = tonumber(ARGV[1])\n" +
+			"local window = tonumber(ARGV[2])\n" +
+			"local now = tonumber(ARGV[3])\n" +
+			"local tat = tonumber(redis.call('get', KEYS[1]))\n" +
+			"if not tat or tat < now then\n" +
+			"    tat = now\n" +
+			"end\n" +
+			"local newTat = tat + interval\n" +
+			"if newTat - now > window + 0.001 then\n" +
+			"    return 0\n" +
+			"end\n" +
+			"redis.call('set', KEYS[1], string.format('%.17g', newTat), 'PX', math.ceil(newTat - now))\n" +
+			"return math.ceil((newTat - now) / interval - 0.000001)\n"
+		, Long.class
+	);
+
+	public RedisLimitService(RedisTemplate<String, Object> redisTemplate, RedisScriptRegistry scriptRegistry) {
+		this.redisTemplate = redisTemplate;
+		this.scriptRegistry = scriptRegistry;
+		this.quotaLeases = new RateLimitQuotaLeases(redisTemplate, scriptRegistry);
+	}
+
 	@Override
-	public Long limit(String key, long max, long ttl, TimeUnit timeUnit)  {
+	public Long limit(String key, long max, long ttl, TimeUnit timeUnit) {
+		return limit(key, max, ttl, timeUnit, RateLimitAlgorithm.SlidingWindow);
+	}
+
+	@Override
+	public Long limit(String key, long max, long ttl, TimeUnit timeUnit, RateLimitAlgorithm algorithm) {
 		// millis time
 		long now = System.currentTimeMillis();
 		long ttlMillis = timeUnit.toMillis(ttl);
+		if (max <= 0) {
+			return 0L;
+		}
 
 		try {
-			RedisCallback<Long> callback = (connection) -> connection.eval(this.Limit_LUA_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8), ReturnType.fromJavaType(Limit_LUA_SCRIPT.getResultType()), 1, key.getBytes(StandardCharsets.UTF_8), (max + "").getBytes(StandardCharsets.UTF_8), (ttlMillis + "").getBytes(StandardCharsets.UTF_8), (now + "").getBytes(StandardCharsets.UTF_8));
+			RedisCallback<Long> callback;
+			if (algorithm == RateLimitAlgorithm.Gcra) {
+				double interval = (double) ttlMillis / max;
+				callback = (connection) -> scriptRegistry.eval(connection, GCRA_LUA_SCRIPT, ReturnType.INTEGER, 1, key.getBytes(StandardCharsets.UTF_8), Convert.toStr(interval).getBytes(StandardCharsets.UTF_8), (ttlMillis + "").getBytes(StandardCharsets.UTF_8), (now + "").getBytes(StandardCharsets.UTF_8));
+			} else {
+				// unique member, concurrent requests of the same millis are all counted
+				String member = now + "-" + UUID.fastUUID().toString(true);
+				callback = (connection) -> scriptRegistry.eval(connection, Limit_LUA_SCRIPT, ReturnType.fromJavaType(Limit_LUA_SCRIPT.getResultType()), 1, key.getBytes(StandardCharsets.UTF_8), (max + "").getBytes(StandardCharsets.UTF_8), (ttlMillis + "").getBytes(StandardCharsets.UTF_8), (now + "").getBytes(StandardCharsets.UTF_8), member.getBytes(StandardCharsets.UTF_8));
+			}
 			return Convert.toLong(redisTemplate.execute(callback));
 		} catch (Exception e) {
-			log.error("redis lock has an error.", e);
+			log.error("redis limit has an error.", e);
 		}
 
 		return 0L;
 	}
+
+	@Override
+	public boolean tryAcquire(String key, long max, long ttl, TimeUnit timeUnit, long leaseSize) {
+		long ttlMillis = timeUnit.toMillis(ttl);
+		if (max <= 0 || ttlMillis <= 0) {
+			return false;
+		}
+		return quotaLeases.tryAcquire(key, max, ttlMillis, leaseSize);
+	}
 }
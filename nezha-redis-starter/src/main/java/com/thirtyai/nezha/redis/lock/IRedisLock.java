@@ -93,6 +93,35 @@ public interface IRedisLock {
 	 */
 	boolean lock(String key, long expireMillis, int retryTimes, long sleepMillis);
 
+	/**
+	 * lock, the lease of expireMillis is renewed by a watchdog until released when watchdog is true
+	 *
+	 * @param key          key
+	 * @param expireMillis lease millis
+	 * @param retryTimes   retry times
+	 * @param sleepMillis  sleep millis
+	 * @param watchdog     renew the lease while held
+	 * @return true: locked
+	 */
+	default boolean lock(String key, long expireMillis, int retryTimes, long sleepMillis, boolean watchdog) {
+		return lock(key, expireMillis, retryTimes, sleepMillis);
+	}
+
+	/**
+	 * lock, a fair lock is granted to its waiters in FIFO order
+	 *
+	 * @param key          key
+	 * @param expireMillis lease millis
+	 * @param retryTimes   retry times
+	 * @param sleepMillis  sleep millis
+	 * @param watchdog     renew the lease while held
+	 * @param fair         FIFO order of the waiters
+	 * @return true: locked
+	 */
+	default boolean lock(String key, long expireMillis, int retryTimes, long sleepMillis, boolean watchdog, boolean fair) {
+		return lock(key, expireMillis, retryTimes, sleepMillis, watchdog);
+	}
+
 	boolean releaseLock(String key);
 
 }
@@ -51,18 +51,34 @@ public @interface Lock {
 	long expireMills();
 
 	/**
-	 * retry times
+	 * retry times, the lock is waited for up to retryTimes * sleepMills
 	 *
 	 * @return
 	 */
 	int retryTimes() default IRedisLock.RETRY_TIMES;
 
 	/**
-	 * set redis key value after，sleep time（cluster sync，standalone set zero）
+	 * max wait between two attempts, waiters are woken earlier by the release of the lock
 	 *
 	 * @return value
 	 */
 	long sleepMills() default IRedisLock.SLEEP_MILLIS;
 
+	/**
+	 * renew the lock expire time by the watchdog until the method returns, a crashed owner's lock expires after expireMills.
+	 * off by default, the lock expires after expireMills even if the method is still running.
+	 *
+	 * @return value
+	 */
+	boolean watchdog() default false;
+
+	/**
+	 * grant the lock to its waiters in FIFO order, the waiter queue keys are key + ":queue" and key + ":waiters",
+	 * give the key a hash tag on redis cluster.
+	 *
+	 * @return value
+	 */
+	boolean fair() default false;
+
 
 }
@@ -60,7 +60,7 @@ public class LockAspect extends AbstractExpressionEvaluator {
 			}
 		}
 
-		boolean lock = redisLockService.lock(key, localAnnotation.expireMills(), localAnnotation.retryTimes(), localAnnotation.sleepMills());
+		boolean lock = redisLockService.lock(key, localAnnotation.expireMills(), localAnnotation.retryTimes(), localAnnotation.sleepMills(), localAnnotation.watchdog(), localAnnotation.fair());
 		if (!lock) {
 			throw new I18nException(Status.Redis_Lock_Get_Lock_Fail);
 		}
@@ -72,7 +72,7 @@ public class LockAspect extends AbstractExpressionEvaluator {
 			log.error(ex.getMessage());
 			throw ex;
 		} finally {
-			redisLockService.releaseLock(localAnnotation.key());
+			redisLockService.releaseLock(key);
 		}
 	}
 }
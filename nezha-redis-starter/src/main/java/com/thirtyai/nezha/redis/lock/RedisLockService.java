@@ -17,88 +17,377 @@ package com.thirtyai.nezha.redis.lock;
 
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.lang.UUID;
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import com.thirtyai.nezha.common.NezhaConstant;
+import com.thirtyai.nezha.redis.script.RedisScriptRegistry;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.connection.ReturnType;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 
-import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * redis lock service
+ * reentrant lock, the lock key is a hash of owner and hold count, the owner is the service instance id and the thread id,
+ * a watchdog renews the leases of the held locks with one shared scheduler, a crashed owner's lock expires after its lease.
+ * waiters are woken by the release notifications published on RELEASE_CHANNEL, a fair lock grants the lock to its waiters in FIFO order.
  *
  * @author kyleju
  */
 @Slf4j
 @RequiredArgsConstructor
-public class RedisLockService implements IRedisLock {
+public class RedisLockService implements IRedisLock, MessageListener, DisposableBean {
+	/**
+	 * release channel, the message is the released lock key
+	 */
+	public static final String RELEASE_CHANNEL = NezhaConstant.nezhaPreFix("lock:release");
+	private static final byte[] RELEASE_CHANNEL_BYTES = RELEASE_CHANNEL.getBytes(StandardCharsets.UTF_8);
+	private static final String QUEUE_SUFFIX = ":queue";
+	private static final String WAITERS_SUFFIX = ":waiters";
+	private static final long MIN_RENEW_MILLIS = 10L;
+	private static final long MIN_FAIR_WAITER_TIMEOUT_MILLIS = 2000L;
 
 	private final RedisTemplate<String, Object> redisTemplate;
 
-	private final ThreadLocal<String> lockFlag = new ThreadLocal<>();
+	private final RedisScriptRegistry scriptRegistry;
+
+	/**
+	 * owner id prefix of this service instance
+	 */
+	private final String instanceId = UUID.fastUUID().toString(true);
+
+	/**
+	 * locks held by the threads of this instance, key: lock key + owner
+	 */
+	private final Map<String, HeldLock> heldLocks = MapUtil.newConcurrentHashMap();
+
+	private final RedisLockWaiters waiters = new RedisLockWaiters();
+
+	private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(ThreadUtil.newNamedThreadFactory("nezha-lock-watchdog-", true));
+
+	/**
+	 * lease renewals count
+	 */
+	@Getter
+	private final LongAdder renewals = new LongAdder();
 
 	/**
-	 * lock lua script
+	 * lock lua script, KEYS[1] lock key, ARGV[1] lock token, ARGV[2] expire millis
 	 */
-	private final static DefaultRedisScript<Long> LOCK_LUA_SCRIPT = new DefaultRedisScript<>(
+	public final static DefaultRedisScript<Long> LOCK_LUA_SCRIPT = new DefaultRedisScript<>(
 		"if redis.call(\"setnx\", KEYS[1], ARGV[1]) == 1 then return redis.call(\"pexpire\", KEYS[1], ARGV[2]) else return 0 end"
 		, Long.class
 	);
 
 	/**
-	 * release lock script
+	 * release lock script, KEYS[1] lock key, ARGV[1] lock token
 	 */
-	private final static DefaultRedisScript<Long> UNLOCK_LUA_SCRIPT = new DefaultRedisScript<>(
+	public final static DefaultRedisScript<Long> UNLOCK_LUA_SCRIPT = new DefaultRedisScript<>(
 		"if redis.call(\"get\",KEYS[1]) == ARGV[1] then return redis.call(\"del\",KEYS[1]) else return -1 end"
 		, Long.class
 	);
 
+	/**
+	 * reentrant lock script, KEYS[1] lock key, ARGV[1] owner, ARGV[2] lease millis, returns the hold count or 0
+	 */
+	public final static DefaultRedisScript<Long> REENTRANT_LOCK_LUA_SCRIPT = new DefaultRedisScript<>(
+		"if redis.call('exists', KEYS[1]) == 0 or redis.call('hexists', KEYS[1], ARGV[1]) == 1 then\n" +
+			"    local count = redis.call('hincrby', KEYS[1], ARGV[1], 1)\n" +
+			"    redis.call('pexpire', KEYS[1], ARGV[2])\n" +
+			"    return count\n" +
+			"end\n" +
+			"local ttl = redis.call('pttl', KEYS[1])\n" +
+			"if ttl < 0 then\n" +
+			"    ttl = 0\n" +
+			"end\n" +
+			"return -ttl\n"
+		, Long.class
+	);
+
+	/**
+	 * fair lock script, KEYS[1] lock key, KEYS[2] waiter queue, KEYS[3] waiter last seen zset, ARGV[1] owner,
+	 * ARGV[2] lease millis, ARGV[3] waiter timeout millis.
+	 * the free lock is granted to the queue head only, waiters which stopped polling are dropped from the head,
+	 * the waiters are stamped with the redis server time, so the client clocks never decide the queue head,
+	 * returns the hold count, or -pttl of the lock (0 when unknown) after queueing the owner.
+	 */
+	public final static DefaultRedisScript<Long> FAIR_LOCK_LUA_SCRIPT = new DefaultRedisScript<>(
+		"if redis.replicate_commands then\n" +
+			"    redis.replicate_commands()\n" +
+			"end\n" +
+			"local time = redis.call('time')\n" +
+			"local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+			"local timeout = tonumber(ARGV[3])\n" +
+			"while true do\n" +
+			"    local head = redis.call('lindex', KEYS[2], 0)\n" +
+			"    if not head or head == ARGV[1] then\n" +
+			"        break\n" +
+			"    end\n" +
+			"    local seen = tonumber(redis.call('zscore', KEYS[3], head))\n" +
+			"    if seen and seen + timeout >= now then\n" +
+			"        break\n" +
+			"    end\n" +
+			"    redis.call('lpop', KEYS[2])\n" +
+			"    redis.call('zrem', KEYS[3], head)\n" +
+			"end\n" +
+			"if redis.call('hexists', KEYS[1], ARGV[1]) == 1 then\n" +
+			"    local count = redis.call('hincrby', KEYS[1], ARGV[1], 1)\n" +
+			"    redis.call('pexpire', KEYS[1], ARGV[2])\n" +
+			"    return count\n" +
+			"end\n" +
+			"local head = redis.call('lindex', KEYS[2], 0)\n" +
+			"if redis.call('exists', KEYS[1]) == 0 and (not head or head == ARGV[1]) then\n" +
+			"    if head then\n" +
+			"        redis.call('lpop', KEYS[2])\n" +
+			"        redis.call('zrem', KEYS[3], ARGV[1])\n" +
+			"    end\n" +
+			"    redis.call('hincrby', KEYS[1], ARGV[1], 1)\n" +
+			"    redis.call('pexpire', KEYS[1], ARGV[2])\n" +
+			"    return 1\n" +
+			"end\n" +
+			"if not redis.call('zscore', KEYS[3], ARGV[1]) then\n" +
+			"    redis.call('rpush', KEYS[2], ARGV[1])\n" +
+			"end\n" +
+			"redis.call('zadd', KEYS[3], now, ARGV[1])\n" +
+			"redis.call('pexpire', KEYS[2], timeout * 2)\n" +
+			"redis.call('pexpire', KEYS[3], timeout * 2)\n" +
+			"local ttl = redis.call('pttl', KEYS[1])\n" +
+			"if ttl < 0 then\n" +
+			"    ttl = 0\n" +
+			"end\n" +
+			"return -ttl\n"
+		, Long.class
+	);
+
+	/**
+	 * fair lock give up script, KEYS[1] waiter queue, KEYS[2] waiter last seen zset, ARGV[1] owner
+	 */
+	public final static DefaultRedisScript<Long> FAIR_DEQUEUE_LUA_SCRIPT = new DefaultRedisScript<>(
+		"redis.call('lrem', KEYS[1], 0, ARGV[1])\n" +
+			"return redis.call('zrem', KEYS[2], ARGV[1])\n"
+		, Long.class
+	);
+
+	/**
+	 * reentrant release script, KEYS[1] lock key, ARGV[1] owner, ARGV[2] lease millis, ARGV[3] release channel,
+	 * returns the left hold count, -1 when not owned, the key is published to the channel when released.
+	 */
+	public final static DefaultRedisScript<Long> REENTRANT_UNLOCK_LUA_SCRIPT = new DefaultRedisScript<>(
+		"if redis.call('hexists', KEYS[1], ARGV[1]) == 0 then\n" +
+			"    return -1\n" +
+			"end\n" +
+			"local count = redis.call('hincrby', KEYS[1], ARGV[1], -1)\n" +
+			"if count > 0 then\n" +
+			"    redis.call('pexpire', KEYS[1], ARGV[2])\n" +
+			"    return count\n" +
+			"end\n" +
+			"redis.call('del', KEYS[1])\n" +
+			"redis.call('publish', ARGV[3], KEYS[1])\n" +
+			"return 0\n"
+		, Long.class
+	);
+
+	/**
+	 * renew lease script, KEYS[1] lock key, ARGV[1] owner, ARGV[2] lease millis, returns 1 when renewed
+	 */
+	public final static DefaultRedisScript<Long> RENEW_LUA_SCRIPT = new DefaultRedisScript<>(
+		"if redis.call('hexists', KEYS[1], ARGV[1]) == 1 then\n" +
+			"    return redis.call('pexpire', KEYS[1], ARGV[2])\n" +
+			"end\n" +
+			"return 0\n"
+		, Long.class
+	);
+
 	@Override
 	public boolean lock(String key, long expireMillis, int retryTimes, long sleepMillis) {
-		boolean result = setRedis(key, expireMillis);
-		while ((!result) && retryTimes-- > 0) {
-			try {
-				log.info("lock failed, retrying " + retryTimes + "'s");
-				Thread.sleep(sleepMillis);
-			} catch (InterruptedException e) {
-				return false;
+		return lock(key, expireMillis, retryTimes, sleepMillis, false, false);
+	}
+
+	@Override
+	public boolean lock(String key, long expireMillis, int retryTimes, long sleepMillis, boolean watchdog) {
+		return lock(key, expireMillis, retryTimes, sleepMillis, watchdog, false);
+	}
+
+	@Override
+	public boolean lock(String key, long expireMillis, int retryTimes, long sleepMillis, boolean watchdog, boolean fair) {
+		String owner = owner();
+		long sleep = Math.max(0L, sleepMillis);
+		boolean waiting = retryTimes > 0;
+		long deadline = System.currentTimeMillis() + retryTimes * sleep;
+		long generation = waiting ? waiters.join(key) : 0L;
+		long waiterTimeoutMillis = Math.max(3 * sleep, MIN_FAIR_WAITER_TIMEOUT_MILLIS);
+		try {
+			long result = setRedis(key, owner, expireMillis, fair, waiterTimeoutMillis);
+			// both bounds are kept, a woken waiter doesn't shorten the wait, a zero sleep still retries retryTimes
+			int retries = 0;
+			while (result <= 0 && waiting) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (retries >= retryTimes && remaining <= 0) {
+					break;
+				}
+				retries++;
+				long waitMillis = result < 0 ? Math.min(sleep, -result) : sleep;
+				if (remaining > 0) {
+					waitMillis = Math.min(remaining, waitMillis);
+				}
+				if (waitMillis > 0) {
+					log.debug("lock {} is held, waiting {} ms for its release.", key, waitMillis);
+					generation = waiters.await(key, generation, waitMillis);
+				}
+				result = setRedis(key, owner, expireMillis, fair, waiterTimeoutMillis);
+			}
+			if (result > 0) {
+				held(key, owner, expireMillis, watchdog);
+				return true;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if (waiting) {
+				waiters.leave(key);
 			}
-			result = setRedis(key, expireMillis);
 		}
-		return result;
+		if (fair) {
+			dequeue(key, owner);
+		}
+		log.debug("lock {} failed.", key);
+		return false;
 	}
 
-	private boolean setRedis(final String key, final long expireMillis) {
+	/**
+	 * try the lock once
+	 *
+	 * @return value hold count when locked, -pttl of the held lock or 0 when unknown
+	 */
+	private long setRedis(final String key, final String owner, final long expireMillis, final boolean fair, final long waiterTimeoutMillis) {
 		try {
-			RedisCallback<Boolean> callback = (connection) -> {
-				String uuid = UUID.randomUUID().toString();
-				lockFlag.set(uuid);
-				return connection.eval(LOCK_LUA_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8), ReturnType.BOOLEAN, 1, key.getBytes(StandardCharsets.UTF_8), uuid.getBytes(StandardCharsets.UTF_8), Convert.toStr(expireMillis).getBytes(StandardCharsets.UTF_8));
-			};
-			return redisTemplate.execute(callback);
+			RedisCallback<Long> callback;
+			if (fair) {
+				callback = (connection) -> scriptRegistry.eval(connection, FAIR_LOCK_LUA_SCRIPT, ReturnType.INTEGER, 3, key.getBytes(StandardCharsets.UTF_8), (key + QUEUE_SUFFIX).getBytes(StandardCharsets.UTF_8), (key + WAITERS_SUFFIX).getBytes(StandardCharsets.UTF_8), owner.getBytes(StandardCharsets.UTF_8), Convert.toStr(expireMillis).getBytes(StandardCharsets.UTF_8), Convert.toStr(waiterTimeoutMillis).getBytes(StandardCharsets.UTF_8));
+			} else {
+				callback = (connection) -> scriptRegistry.eval(connection, REENTRANT_LOCK_LUA_SCRIPT, ReturnType.INTEGER, 1, key.getBytes(StandardCharsets.UTF_8), owner.getBytes(StandardCharsets.UTF_8), Convert.toStr(expireMillis).getBytes(StandardCharsets.UTF_8));
+			}
+			return Convert.toLong(redisTemplate.execute(callback), 0L);
 		} catch (Exception e) {
 			log.error("redis lock has an error.", e);
 		}
-		return false;
+		return 0L;
+	}
 
+	private void dequeue(String key, String owner) {
+		try {
+			RedisCallback<Long> callback = (connection) -> scriptRegistry.eval(connection, FAIR_DEQUEUE_LUA_SCRIPT, ReturnType.INTEGER, 2, (key + QUEUE_SUFFIX).getBytes(StandardCharsets.UTF_8), (key + WAITERS_SUFFIX).getBytes(StandardCharsets.UTF_8), owner.getBytes(StandardCharsets.UTF_8));
+			redisTemplate.execute(callback);
+		} catch (Exception e) {
+			log.error("redis fair lock dequeue has an error.", e);
+		}
 	}
 
 	@Override
 	public boolean releaseLock(String key) {
+		String owner = owner();
+		HeldLock heldLock = heldLocks.get(key + owner);
+		long expireMillis = heldLock == null ? TIMEOUT_MILLIS : heldLock.expireMillis;
 		try {
-			RedisCallback<Boolean> callback = (connection) -> {
-				String value = lockFlag.get();
-				return connection.eval(UNLOCK_LUA_SCRIPT.getScriptAsString().getBytes(), ReturnType.BOOLEAN, 1, key.getBytes(Charset.forName("UTF-8")), value.getBytes(Charset.forName("UTF-8")));
-			};
-			return redisTemplate.execute(callback);
+			RedisCallback<Long> callback = (connection) -> scriptRegistry.eval(connection, REENTRANT_UNLOCK_LUA_SCRIPT, ReturnType.INTEGER, 1, key.getBytes(StandardCharsets.UTF_8), owner.getBytes(StandardCharsets.UTF_8), Convert.toStr(expireMillis).getBytes(StandardCharsets.UTF_8), RELEASE_CHANNEL_BYTES);
+			long left = Convert.toLong(redisTemplate.execute(callback), -1L);
+			if (left == 0) {
+				waiters.released(key);
+			}
+			return left >= 0;
 		} catch (Exception e) {
 			log.error("release lock has an exception", e);
 		} finally {
-			lockFlag.remove();
+			released(key, owner);
 		}
 		return false;
 	}
+
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		waiters.released(new String(message.getBody(), StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void destroy() {
+		watchdog.shutdownNow();
+	}
+
+	/**
+	 * owner id of the current thread
+	 *
+	 * @return value
+	 */
+	protected String owner() {
+		return instanceId + ":" + Thread.currentThread().getId();
+	}
+
+	private void held(String key, String owner, long expireMillis, boolean renew) {
+		heldLocks.compute(key + owner, (heldKey, heldLock) -> {
+			if (heldLock == null) {
+				heldLock = new HeldLock(expireMillis);
+				if (renew) {
+					long period = Math.max(MIN_RENEW_MILLIS, expireMillis / 3);
+					heldLock.renewal = watchdog.scheduleAtFixedRate(() -> renew(key, owner, expireMillis), period, period, TimeUnit.MILLISECONDS);
+				}
+			}
+			heldLock.count++;
+			return heldLock;
+		});
+	}
+
+	private void released(String key, String owner) {
+		heldLocks.computeIfPresent(key + owner, (heldKey, heldLock) -> {
+			if (--heldLock.count > 0) {
+				return heldLock;
+			}
+			if (heldLock.renewal != null) {
+				heldLock.renewal.cancel(false);
+			}
+			return null;
+		});
+	}
+
+	private void renew(String key, String owner, long expireMillis) {
+		try {
+			RedisCallback<Long> callback = (connection) -> scriptRegistry.eval(connection, RENEW_LUA_SCRIPT, ReturnType.INTEGER, 1, key.getBytes(StandardCharsets.UTF_8), owner.getBytes(StandardCharsets.UTF_8), Convert.toStr(expireMillis).getBytes(StandardCharsets.UTF_8));
+			if (Convert.toLong(redisTemplate.execute(callback), 0L) > 0) {
+				renewals.increment();
+				return;
+			}
+			log.warn("lock {} is lost, stop renewing it.", key);
+		} catch (Exception e) {
+			// the next period tries again while the lease lasts
+			log.error("renew lock {} has an error.", key, e);
+			return;
+		}
+		HeldLock heldLock = heldLocks.get(key + owner);
+		if (heldLock != null && heldLock.renewal != null) {
+			heldLock.renewal.cancel(false);
+		}
+	}
+
+	private static class HeldLock {
+		private final long expireMillis;
+		private int count;
+		private ScheduledFuture<?> renewal;
+
+		private HeldLock(long expireMillis) {
+			this.expireMillis = expireMillis;
+		}
+	}
 }
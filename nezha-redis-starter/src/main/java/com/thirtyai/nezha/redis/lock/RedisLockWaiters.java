@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.redis.lock;
+
+import cn.hutool.core.map.MapUtil;
+
+import java.util.Map;
+
+/**
+ * redis lock waiters
+ * the local threads waiting for lock keys, woken by the release notifications of the keys.
+ * a waiter takes the generation before trying the lock and only waits when no release happened since then.
+ *
+ * @author kyleju
+ */
+public class RedisLockWaiters {
+	private final Map<String, Waiters> waiters = MapUtil.newConcurrentHashMap();
+
+	/**
+	 * join the waiters of the key
+	 *
+	 * @param key lock key
+	 * @return value generation of the key
+	 */
+	public long join(String key) {
+		return waiters.compute(key, (k, current) -> {
+			Waiters keyWaiters = current == null ? new Waiters() : current;
+			keyWaiters.count++;
+			return keyWaiters;
+		}).generation;
+	}
+
+	/**
+	 * leave the waiters of the key
+	 *
+	 * @param key lock key
+	 */
+	public void leave(String key) {
+		waiters.computeIfPresent(key, (k, current) -> --current.count > 0 ? current : null);
+	}
+
+	/**
+	 * wait for a release of the key after the generation
+	 *
+	 * @param key        lock key
+	 * @param generation generation taken before trying the lock
+	 * @param waitMillis max wait millis
+	 * @return value current generation
+	 * @throws InterruptedException interrupted
+	 */
+	public long await(String key, long generation, long waitMillis) throws InterruptedException {
+		Waiters keyWaiters = waiters.get(key);
+		if (keyWaiters == null) {
+			return generation;
+		}
+		synchronized (keyWaiters) {
+			if (keyWaiters.generation == generation && waitMillis > 0) {
+				keyWaiters.wait(waitMillis);
+			}
+			return keyWaiters.generation;
+		}
+	}
+
+	/**
+	 * generation of the key
+	 *
+	 * @param key lock key
+	 * @return value
+	 */
+	public long generation(String key) {
+		Waiters keyWaiters = waiters.get(key);
+		return keyWaiters == null ? 0L : keyWaiters.generation;
+	}
+
+	/**
+	 * wake the waiters of the released key
+	 *
+	 * @param key lock key
+	 */
+	public void released(String key) {
+		Waiters keyWaiters = waiters.get(key);
+		if (keyWaiters == null) {
+			return;
+		}
+		synchronized (keyWaiters) {
+			keyWaiters.generation++;
+			keyWaiters.notifyAll();
+		}
+	}
+
+	private static class Waiters {
+		private int count;
+		private volatile long generation;
+	}
+}
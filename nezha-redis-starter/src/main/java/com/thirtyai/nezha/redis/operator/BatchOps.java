@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.redis.operator;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * batch ops
+ * fluent builder of mixed commands sent in one pipeline by {@link RedisOperator#pipeline(Consumer)},
+ * every queued command has one result at the same index of {@link BatchResults}, commands with a status reply
+ * (HMSET, RENAME, SETRANGE...) have none in a lettuce pipeline and must not be queued by {@link #add(Consumer)}.
+ *
+ * @author kyleju
+ */
+@SuppressWarnings("unchecked")
+public class BatchOps {
+	private final List<Consumer<RedisOperations<String, Object>>> commands = new ArrayList<>();
+
+	/**
+	 * set key value
+	 *
+	 * @param key   key
+	 * @param value value
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps set(String key, Object value) {
+		return add(operations -> operations.opsForValue().set(key, value));
+	}
+
+	/**
+	 * set key value with expire time
+	 *
+	 * @param key     key
+	 * @param value   value
+	 * @param timeout timeout
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps set(String key, Object value, Duration timeout) {
+		return add(operations -> operations.opsForValue().set(key, value, timeout.toMillis(), TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * set key value if absent, result is {@link Boolean}
+	 *
+	 * @param key     key
+	 * @param value   value
+	 * @param timeout timeout
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps setIfAbsent(String key, Object value, Duration timeout) {
+		return add(operations -> operations.opsForValue().setIfAbsent(key, value, timeout.toMillis(), TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * get key, result is the value
+	 *
+	 * @param key key
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps get(String key) {
+		return add(operations -> operations.opsForValue().get(key));
+	}
+
+	/**
+	 * increment by delta, result is {@link Long}
+	 *
+	 * @param key   key
+	 * @param delta delta
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps incrBy(String key, long delta) {
+		return add(operations -> operations.opsForValue().increment(key, delta));
+	}
+
+	/**
+	 * expire key, result is {@link Boolean}
+	 *
+	 * @param key     key
+	 * @param timeout timeout
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps expire(String key, Duration timeout) {
+		return add(operations -> operations.expire(key, timeout.toMillis(), TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * del keys, result is {@link Long}
+	 *
+	 * @param keys keys
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps del(String... keys) {
+		return del(Arrays.asList(keys));
+	}
+
+	/**
+	 * del keys, result is {@link Long}
+	 *
+	 * @param keys keys
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps del(Collection<String> keys) {
+		return add(operations -> operations.delete(keys));
+	}
+
+	/**
+	 * hash set field value
+	 *
+	 * @param key   key
+	 * @param field field
+	 * @param value value
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps hSet(String key, String field, Object value) {
+		return add(operations -> operations.opsForHash().put(key, field, value));
+	}
+
+	/**
+	 * hash set fields values with one multi field HSET (redis 4.0+), result is the HSET reply.
+	 * HMSET is not used, its status reply is dropped by the pipeline and would shift the results.
+	 *
+	 * @param key key
+	 * @param map fields values, not empty
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps hSetAll(String key, Map<String, ?> map) {
+		if (map.isEmpty()) {
+			throw new IllegalArgumentException("the fields of hSetAll must not be empty.");
+		}
+		return add(operations -> {
+			RedisSerializer<String> keySerializer = (RedisSerializer<String>) operations.getKeySerializer();
+			RedisSerializer<Object> hashKeySerializer = (RedisSerializer<Object>) operations.getHashKeySerializer();
+			RedisSerializer<Object> hashValueSerializer = (RedisSerializer<Object>) operations.getHashValueSerializer();
+			byte[][] args = new byte[map.size() * 2 + 1][];
+			int index = 0;
+			args[index++] = keySerializer.serialize(key);
+			for (Map.Entry<String, ?> entry : map.entrySet()) {
+				args[index++] = hashKeySerializer.serialize(entry.getKey());
+				args[index++] = hashValueSerializer.serialize(entry.getValue());
+			}
+			operations.execute((RedisCallback<Object>) connection -> connection.execute("HSET", args));
+		});
+	}
+
+	/**
+	 * hash get field, result is the value
+	 *
+	 * @param key   key
+	 * @param field field
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps hGet(String key, String field) {
+		return add(operations -> operations.opsForHash().get(key, field));
+	}
+
+	/**
+	 * hash increment field by delta, result is {@link Long}
+	 *
+	 * @param key   key
+	 * @param field field
+	 * @param delta delta
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps hIncrBy(String key, String field, long delta) {
+		return add(operations -> operations.opsForHash().increment(key, field, delta));
+	}
+
+	/**
+	 * sorted set add value with score, result is {@link Boolean}
+	 *
+	 * @param key   key
+	 * @param value value
+	 * @param score score
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps zAdd(String key, Object value, double score) {
+		return add(operations -> operations.opsForZSet().add(key, value, score));
+	}
+
+	/**
+	 * sorted set score of value, result is {@link Double}
+	 *
+	 * @param key   key
+	 * @param value value
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps zScore(String key, Object value) {
+		return add(operations -> operations.opsForZSet().score(key, value));
+	}
+
+	/**
+	 * set add values, result is {@link Long}
+	 *
+	 * @param key    key
+	 * @param values values
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps sAdd(String key, Object... values) {
+		return add(operations -> operations.opsForSet().add(key, values));
+	}
+
+	/**
+	 * list push values to the tail, result is {@link Long}
+	 *
+	 * @param key    key
+	 * @param values values
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps rPush(String key, Object... values) {
+		return add(operations -> operations.opsForList().rightPushAll(key, values));
+	}
+
+	/**
+	 * custom command on the pipelined operations, must issue exactly one command with a non status reply
+	 *
+	 * @param command command
+	 * @return value {@link BatchOps}
+	 */
+	public BatchOps add(Consumer<RedisOperations<String, Object>> command) {
+		commands.add(command);
+		return this;
+	}
+
+	/**
+	 * size of queued commands
+	 *
+	 * @return value
+	 */
+	public int size() {
+		return commands.size();
+	}
+
+	/**
+	 * empty or not
+	 *
+	 * @return value
+	 */
+	public boolean isEmpty() {
+		return commands.isEmpty();
+	}
+
+	/**
+	 * issue the queued commands on the pipelined operations
+	 *
+	 * @param operations pipelined operations
+	 */
+	void applyTo(RedisOperations<?, ?> operations) {
+		RedisOperations<String, Object> stringOperations = (RedisOperations<String, Object>) operations;
+		commands.forEach(command -> command.accept(stringOperations));
+	}
+}
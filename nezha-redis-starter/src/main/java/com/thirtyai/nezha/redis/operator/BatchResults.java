@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.redis.operator;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * batch results
+ * results of a pipeline in the order of the queued commands.
+ *
+ * @author kyleju
+ */
+@SuppressWarnings("unchecked")
+public class BatchResults {
+	public static final BatchResults EMPTY = new BatchResults(Collections.emptyList());
+
+	private final List<Object> results;
+
+	public BatchResults(List<Object> results) {
+		this.results = results;
+	}
+
+	/**
+	 * result of the command at index
+	 *
+	 * @param index index of the queued command
+	 * @param <T>   result type
+	 * @return value
+	 */
+	public <T> T get(int index) {
+		return (T) results.get(index);
+	}
+
+	/**
+	 * result of the command at index
+	 *
+	 * @param index index of the queued command
+	 * @param type  result type
+	 * @param <T>   result type
+	 * @return value
+	 */
+	public <T> T get(int index, Class<T> type) {
+		return type.cast(results.get(index));
+	}
+
+	/**
+	 * size of results
+	 *
+	 * @return value
+	 */
+	public int size() {
+		return results.size();
+	}
+
+	/**
+	 * results as list
+	 *
+	 * @return value
+	 */
+	public List<Object> asList() {
+		return Collections.unmodifiableList(results);
+	}
+}
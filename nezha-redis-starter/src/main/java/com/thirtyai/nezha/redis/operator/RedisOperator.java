@@ -16,17 +16,24 @@
 package com.thirtyai.nezha.redis.operator;
 
 import com.thirtyai.nezha.common.util.JsonUtil;
+import com.thirtyai.nezha.redis.script.RedisScriptRegistry;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.redis.RedisSystemException;
 import org.springframework.data.redis.core.*;
 import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.util.Assert;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
@@ -43,6 +50,15 @@ public class RedisOperator implements SmartInitializingSingleton {
 	private ListOperations<String, Object> listOps;
 	private SetOperations<String, Object> setOps;
 	private ZSetOperations<String, Object> zSetOps;
+	/**
+	 * lua scripts loaded on the redis of this operator
+	 */
+	private final RedisScriptRegistry scriptRegistry = new RedisScriptRegistry();
+	/**
+	 * publish raw utf-8 json, false keeps the json string literal older nodes read
+	 */
+	@Setter
+	private boolean pubSubRawJson = false;
 
 	/**
 	 * set value
@@ -147,11 +163,98 @@ public class RedisOperator implements SmartInitializingSingleton {
 	 *
 	 * @param pattern pattern
 	 * @return value
+	 * @deprecated KEYS blocks the server on large keyspaces, use {@link #scan(String, int, Consumer)}.
 	 */
+	@Deprecated
 	public Set<String> keys(String pattern) {
 		return redisTemplate.keys(pattern);
 	}
 
+	/**
+	 * scan keys
+	 * cursor based SCAN MATCH pattern COUNT batchSize, the matched keys are handed over in batches of at most batchSize,
+	 * a key may be handed over more than once, the keys added or removed during the scan may be missed.
+	 *
+	 * @param pattern   pattern, same as KEYS
+	 * @param batchSize batch size, also the COUNT hint of SCAN
+	 * @param consumer  keys batch consumer
+	 * @return value, keys count
+	 */
+	public long scan(String pattern, int batchSize, Consumer<List<String>> consumer) {
+		Assert.isTrue(batchSize > 0, "batchSize must be greater than zero.");
+		RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+		Long count = redisTemplate.execute((RedisCallback<Long>) connection -> {
+			long scanned = 0L;
+			List<String> batch = new ArrayList<>(batchSize);
+			try (Cursor<byte[]> cursor = connection.scan(ScanOptions.scanOptions().match(pattern).count(batchSize).build())) {
+				while (cursor.hasNext()) {
+					batch.add(keySerializer.deserialize(cursor.next()));
+					scanned++;
+					if (batch.size() >= batchSize) {
+						consumer.accept(batch);
+						batch = new ArrayList<>(batchSize);
+					}
+				}
+			} catch (IOException exception) {
+				throw new RedisSystemException(exception.getMessage(), exception);
+			}
+			if (!batch.isEmpty()) {
+				consumer.accept(batch);
+			}
+			return scanned;
+		});
+		return count == null ? 0L : count;
+	}
+
+	/**
+	 * unlink keys, the memory is reclaimed in background
+	 *
+	 * @param keys keys
+	 * @return value
+	 */
+	public Long unlink(Collection<String> keys) {
+		return redisTemplate.unlink(keys);
+	}
+
+	/**
+	 * pipeline, the queued commands of {@link BatchOps} are sent in one round trip
+	 * <pre>
+	 *     pipeline(batch -> batch.set("k1", "v1", Duration.ofMinutes(1)).hSet("h1", "f1", "v1").get("k2"));
+	 * </pre>
+	 *
+	 * @param batch batch builder
+	 * @return value {@link BatchResults} in the order of the queued commands
+	 */
+	public BatchResults pipeline(Consumer<BatchOps> batch) {
+		BatchOps batchOps = new BatchOps();
+		batch.accept(batchOps);
+		return pipeline(batchOps);
+	}
+
+	/**
+	 * pipeline the queued commands of the batch ops
+	 *
+	 * @param batchOps batch ops
+	 * @return value {@link BatchResults} in the order of the queued commands
+	 */
+	public BatchResults pipeline(BatchOps batchOps) {
+		if (batchOps.isEmpty()) {
+			return BatchResults.EMPTY;
+		}
+		List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+			@Override
+			public <K, V> Object execute(RedisOperations<K, V> operations) {
+				batchOps.applyTo(operations);
+				return null;
+			}
+		});
+		// a status reply command has no result, the results can't be mapped to the commands by index
+		if (results.size() != batchOps.size()) {
+			throw new IllegalStateException(String.format("pipeline returned %d results for %d commands, a status reply command was queued.", results.size(), batchOps.size()));
+		}
+		return new BatchResults(results);
+	}
+
 	/**
 	 * multi set
 	 * at the same time, set multi key-values
@@ -944,13 +1047,18 @@ public class RedisOperator implements SmartInitializingSingleton {
 
 	/**
 	 * publish message queue
+	 * the message is sent as a json string literal of the json, which every release reads, or as utf-8 json when
+	 * pubSubRawJson is enabled, never by the template value serializer, see {@link com.thirtyai.nezha.redis.pubsub.AbstractPubSub}
 	 *
 	 * @param channelTopic channel topic
 	 * @param message      message
 	 */
 	public void publish(ChannelTopic channelTopic, Object message) {
-		redisTemplate.convertAndSend(channelTopic.toString(), Objects.requireNonNull(JsonUtil.toJson(message)));
-		log.debug("redis publish [{}] message to [{}]", message.toString(), channelTopic.toString());
+		String json = Objects.requireNonNull(JsonUtil.toJson(message));
+		byte[] channel = channelTopic.getTopic().getBytes(StandardCharsets.UTF_8);
+		byte[] body = (pubSubRawJson ? json : Objects.requireNonNull(JsonUtil.toJson(json))).getBytes(StandardCharsets.UTF_8);
+		redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, body));
+		log.debug("redis publish [{}] message to [{}]", json, channelTopic.toString());
 	}
 
 	@Override
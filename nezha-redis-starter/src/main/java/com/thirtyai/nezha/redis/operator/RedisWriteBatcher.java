@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.redis.operator;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * redis write batcher
+ * groups the commands submitted by many threads into one pipeline, a pipeline is flushed when maxCommands are queued
+ * or lingerMicros passed since the first queued command, the future of every command completes with its result.
+ *
+ * @author kyleju
+ */
+@Slf4j
+public class RedisWriteBatcher implements DisposableBean {
+	private final RedisOperator redisOperator;
+	private final long lingerNanos;
+	private final int maxCommands;
+	private final BlockingQueue<PendingCommand> queue = new LinkedBlockingQueue<>();
+	@Getter
+	private final LongAdder flushes = new LongAdder();
+	@Getter
+	private final LongAdder commands = new LongAdder();
+	private volatile boolean running = true;
+	private volatile Thread flusher;
+
+	public RedisWriteBatcher(RedisOperator redisOperator, long lingerMicros, int maxCommands) {
+		Assert.isTrue(lingerMicros >= 0, "lingerMicros must not be negative.");
+		Assert.isTrue(maxCommands > 0, "maxCommands must be greater than zero.");
+		this.redisOperator = redisOperator;
+		this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+		this.maxCommands = maxCommands;
+	}
+
+	/**
+	 * set key value with expire time
+	 *
+	 * @param key     key
+	 * @param value   value
+	 * @param timeout timeout
+	 * @return value {@link CompletableFuture}
+	 */
+	public CompletableFuture<Object> set(String key, Object value, Duration timeout) {
+		return submit(operations -> operations.opsForValue().set(key, value, timeout.toMillis(), TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * hash set field value
+	 *
+	 * @param key   key
+	 * @param field field
+	 * @param value value
+	 * @return value {@link CompletableFuture}
+	 */
+	public CompletableFuture<Object> hSet(String key, String field, Object value) {
+		return submit(operations -> operations.opsForHash().put(key, field, value));
+	}
+
+	/**
+	 * sorted set add value with score
+	 *
+	 * @param key   key
+	 * @param value value
+	 * @param score score
+	 * @return value {@link CompletableFuture}
+	 */
+	public CompletableFuture<Object> zAdd(String key, Object value, double score) {
+		return submit(operations -> operations.opsForZSet().add(key, value, score));
+	}
+
+	/**
+	 * expire key
+	 *
+	 * @param key     key
+	 * @param timeout timeout
+	 * @return value {@link CompletableFuture}
+	 */
+	public CompletableFuture<Object> expire(String key, Duration timeout) {
+		return submit(operations -> operations.expire(key, timeout.toMillis(), TimeUnit.MILLISECONDS));
+	}
+
+	/**
+	 * del key
+	 *
+	 * @param key key
+	 * @return value {@link CompletableFuture}
+	 */
+	public CompletableFuture<Object> del(String key) {
+		return submit(operations -> operations.delete(key));
+	}
+
+	/**
+	 * submit a command, it must issue exactly one command with a non status reply on the pipelined operations,
+	 * a status reply command (HMSET, RENAME, SETRANGE...) fails every future of its pipeline.
+	 *
+	 * @param command command
+	 * @return value {@link CompletableFuture} of the command result
+	 */
+	public CompletableFuture<Object> submit(Consumer<RedisOperations<String, Object>> command) {
+		CompletableFuture<Object> future = new CompletableFuture<>();
+		if (!running) {
+			future.completeExceptionally(new IllegalStateException("redis write batcher is stopped."));
+			return future;
+		}
+		startIfNecessary();
+		queue.add(new PendingCommand(command, future));
+		return future;
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		running = false;
+		Thread thread = flusher;
+		if (thread != null) {
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+		}
+		List<PendingCommand> remaining = new ArrayList<>();
+		while (queue.drainTo(remaining, maxCommands) > 0) {
+			flush(remaining);
+			remaining.clear();
+		}
+	}
+
+	private void startIfNecessary() {
+		if (flusher != null) {
+			return;
+		}
+		synchronized (this) {
+			if (flusher == null) {
+				Thread thread = new Thread(this::runFlusher, "nezha-redis-write-batcher");
+				thread.setDaemon(true);
+				thread.start();
+				flusher = thread;
+			}
+		}
+	}
+
+	private void runFlusher() {
+		List<PendingCommand> batch = new ArrayList<>(maxCommands);
+		while (running) {
+			try {
+				PendingCommand first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, maxCommands - batch.size());
+				long deadline = System.nanoTime() + lingerNanos;
+				while (batch.size() < maxCommands) {
+					long remaining = deadline - System.nanoTime();
+					PendingCommand next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+					queue.drainTo(batch, maxCommands - batch.size());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				running = false;
+			}
+			if (!batch.isEmpty()) {
+				flush(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	private void flush(List<PendingCommand> batch) {
+		BatchOps batchOps = new BatchOps();
+		batch.forEach(pending -> batchOps.add(pending.command));
+		try {
+			BatchResults results = redisOperator.pipeline(batchOps);
+			for (int i = 0; i < batch.size(); i++) {
+				batch.get(i).future.complete(results.get(i));
+			}
+		} catch (RuntimeException e) {
+			log.warn("redis write batcher failed to flush {} commands.", batch.size(), e);
+			batch.forEach(pending -> pending.future.completeExceptionally(e));
+		}
+		flushes.increment();
+		commands.add(batch.size());
+	}
+
+	private static class PendingCommand {
+		private final Consumer<RedisOperations<String, Object>> command;
+		private final CompletableFuture<Object> future;
+
+		private PendingCommand(Consumer<RedisOperations<String, Object>> command, CompletableFuture<Object> future) {
+			this.command = command;
+			this.future = future;
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.redis.props;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * nezha redis properties
+ *
+ * @author kyleju
+ */
+@ConfigurationProperties(value = "nezha.redis")
+@Setter
+@Getter
+public class NezhaRedisProperties {
+	/**
+	 * default value serializer of redis template and caches: json, smile, jdk or the name of a custom IRedisValueSerializer bean
+	 */
+	private String serializer = "json";
+	/**
+	 * linger micros of the redis write batcher, a pipeline is flushed at latest this long after its first command
+	 */
+	private long batcherLingerMicros = 200L;
+	/**
+	 * max commands of one pipeline of the redis write batcher
+	 */
+	private int batcherMaxCommands = 128;
+	/**
+	 * publish pub sub messages as raw utf-8 json instead of the json string literal of older releases,
+	 * the listeners read both, enable it once every node of the cluster reads the raw json.
+	 */
+	private boolean pubSubRawJson = false;
+}
@@ -18,14 +18,14 @@ package com.thirtyai.nezha.redis.pubsub;
 import com.thirtyai.nezha.common.util.JsonUtil;
 import com.thirtyai.nezha.redis.operator.RedisOperator;
 import lombok.Getter;
+import org.springframework.core.ResolvableType;
 import org.springframework.data.redis.connection.Message;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
+import java.io.IOException;
 
 /**
  * abstract pub sub
@@ -35,13 +35,16 @@ import java.lang.reflect.Type;
  */
 @SuppressWarnings("unchecked")
 public abstract class AbstractPubSub<T> implements MessageListener {
+	private static final byte QUOTE = '"';
 	@Getter
 	private final ChannelTopic channelTopic;
 	private final RedisOperator redisOperator;
+	private final Class<T> messageClass;
 
 	public AbstractPubSub(@NonNull ChannelTopic channelTopic, @NonNull RedisOperator redisOperator) {
 		this.channelTopic = channelTopic;
 		this.redisOperator = redisOperator;
+		this.messageClass = (Class<T>) ResolvableType.forClass(this.getClass()).as(AbstractPubSub.class).resolveGeneric(0);
 	}
 
 	public AbstractPubSub(@NonNull String topic, @NonNull RedisOperator redisOperator) {
@@ -55,18 +58,28 @@ public abstract class AbstractPubSub<T> implements MessageListener {
 	@Override
 	public void onMessage(Message message, byte[] pattern) {
 		if (message != null) {
-			Type genericSuperclass = this.getClass().getGenericSuperclass();
-			ParameterizedType parameterizedType = (ParameterizedType) genericSuperclass;
-			Type[] actualTypeArguments = parameterizedType.getActualTypeArguments();
-			Class<T> tClass = (Class<T>) actualTypeArguments[0];
 			try {
-				this.onMessage(JsonUtil.parse(JsonUtil.parse(message.toString(), String.class), tClass));
+				this.onMessage(parse(message.getBody()));
 			} catch (Exception e) {
 				this.onError(e);
 			}
 		}
 	}
 
+	/**
+	 * parse message body once, the json string body of older publishers is unwrapped first.
+	 *
+	 * @param body body
+	 * @return value
+	 * @throws IOException exception
+	 */
+	private T parse(byte[] body) throws IOException {
+		if (body.length > 0 && body[0] == QUOTE) {
+			return JsonUtil.parse(JsonUtil.parse(body, String.class), messageClass);
+		}
+		return JsonUtil.parse(body, messageClass);
+	}
+
 	/**
 	 * on message
 	 *
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.redis.script;
+
+import cn.hutool.core.collection.ConcurrentHashSet;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * redis script registry
+ * lua scripts are loaded once by SCRIPT LOAD and called by EVALSHA, a NOSCRIPT reply (flushed script cache,
+ * restarted or failed over node) falls back to EVAL which caches the script on that node again.
+ *
+ * @author kyleju
+ */
+@Slf4j
+@Getter
+public class RedisScriptRegistry {
+	private static final String NO_SCRIPT = "NOSCRIPT";
+
+	private final Set<String> loadedShas = new ConcurrentHashSet<>();
+	/**
+	 * SCRIPT LOAD count
+	 */
+	private final LongAdder loads = new LongAdder();
+	/**
+	 * EVALSHA count
+	 */
+	private final LongAdder evalShas = new LongAdder();
+	/**
+	 * EVAL fallbacks count
+	 */
+	private final LongAdder evalFallbacks = new LongAdder();
+
+	/**
+	 * eval the script by its sha1
+	 *
+	 * @param connection  redis connection
+	 * @param script      script
+	 * @param returnType  return type
+	 * @param numKeys     number of keys
+	 * @param keysAndArgs keys and args
+	 * @param <T>         result type
+	 * @return value
+	 */
+	public <T> T eval(RedisScriptingCommands connection, RedisScript<?> script, ReturnType returnType, int numKeys, byte[]... keysAndArgs) {
+		String sha = script.getSha1();
+		if (!loadedShas.contains(sha) && !load(connection, script)) {
+			return evalScript(connection, script, returnType, numKeys, keysAndArgs);
+		}
+		try {
+			evalShas.increment();
+			return connection.evalSha(sha, returnType, numKeys, keysAndArgs);
+		} catch (RuntimeException e) {
+			if (!isNoScript(e)) {
+				throw e;
+			}
+			log.debug("redis script {} is not cached, eval it again.", sha);
+			return evalScript(connection, script, returnType, numKeys, keysAndArgs);
+		}
+	}
+
+	private boolean load(RedisScriptingCommands connection, RedisScript<?> script) {
+		try {
+			connection.scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8));
+			loads.increment();
+			return true;
+		} catch (RuntimeException e) {
+			log.warn("load redis script {} failed, eval it instead, {}", script.getSha1(), e.getMessage());
+			return false;
+		} finally {
+			// either loaded, or cached by the EVAL fallback
+			loadedShas.add(script.getSha1());
+		}
+	}
+
+	private <T> T evalScript(RedisScriptingCommands connection, RedisScript<?> script, ReturnType returnType, int numKeys, byte[]... keysAndArgs) {
+		evalFallbacks.increment();
+		return connection.eval(script.getScriptAsString().getBytes(StandardCharsets.UTF_8), returnType, numKeys, keysAndArgs);
+	}
+
+	private static boolean isNoScript(Throwable e) {
+		for (Throwable current = e; current != null; current = current.getCause()) {
+			if (current.getMessage() != null && current.getMessage().contains(NO_SCRIPT)) {
+				return true;
+			}
+			if (current.getCause() == current) {
+				break;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.redis.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+/**
+ * jackson json redis value serializer
+ *
+ * @author kyleju
+ */
+public class JsonRedisValueSerializer extends Jackson2JsonRedisSerializer<Object> implements IRedisValueSerializer {
+	public static final String NAME = "json";
+
+	public JsonRedisValueSerializer(ObjectMapper objectMapper) {
+		super(Object.class);
+		setObjectMapper(objectMapper);
+	}
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+}
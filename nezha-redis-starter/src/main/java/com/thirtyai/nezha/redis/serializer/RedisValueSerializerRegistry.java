@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2019-2020 kyle ju(Email: nezha@thirtyai.com  QQ: 17062743) All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.thirtyai.nezha.redis.serializer;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * redis value serializer registry
+ *
+ * @author kyleju
+ */
+@Slf4j
+public class RedisValueSerializerRegistry {
+	private final Map<String, IRedisValueSerializer> serializers = new LinkedHashMap<>();
+	/**
+	 * default serializer of redis template and caches
+	 */
+	@Getter
+	private final IRedisValueSerializer defaultSerializer;
+
+	public RedisValueSerializerRegistry(Collection<IRedisValueSerializer> serializers, String defaultName) {
+		serializers.forEach(serializer -> this.serializers.put(serializer.getName().toLowerCase(), serializer));
+		IRedisValueSerializer serializer = StrUtil.isBlank(defaultName) ? null : this.serializers.get(defaultName.toLowerCase());
+		if (serializer == null) {
+			throw new IllegalArgumentException(String.format("unknown redis value serializer [%s], available %s", defaultName, this.serializers.keySet()));
+		}
+		this.defaultSerializer = serializer;
+	}
+
+	/**
+	 * get serializer by name
+	 *
+	 * @param name serializer name, blank means default.
+	 * @return value, default serializer if the name is unknown.
+	 */
+	public IRedisValueSerializer getSerializer(@Nullable String name) {
+		if (StrUtil.isBlank(name)) {
+			return defaultSerializer;
+		}
+		IRedisValueSerializer serializer = serializers.get(name.toLowerCase());
+		if (serializer == null) {
+			log.warn("unknown redis value serializer [{}], use [{}]", name, defaultSerializer.getName());
+			return defaultSerializer;
+		}
+		return serializer;
+	}
+
+	/**
+	 * serializer names
+	 *
+	 * @return value
+	 */
+	public Set<String> getNames() {
+		return serializers.keySet();
+	}
+}
@@ -0,0 +1,84 @@
+package com.thirtyai.nezha.redis.limit;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * rate limit quota leases test
+ */
+public class RateLimitQuotaLeasesTest {
+	private static final long WINDOW = TimeUnit.DAYS.toMillis(1);
+
+	@Test
+	public void nodesNeverExceedTheGlobalQuota() {
+		AtomicLong used = new AtomicLong();
+		RateLimitQuotaLeases first = node(used);
+		RateLimitQuotaLeases second = node(used);
+		int admitted = 0;
+		for (int i = 0; i < 1000; i++) {
+			admitted += first.tryAcquire("key", 500, WINDOW, 50) ? 1 : 0;
+			admitted += second.tryAcquire("key", 500, WINDOW, 50) ? 1 : 0;
+		}
+		assertTrue(admitted <= 500);
+		assertTrue(admitted >= 400);
+		assertTrue(first.getLeaseRequests().sum() + second.getLeaseRequests().sum() < 50);
+	}
+
+	@Test
+	public void usedUpWindowIsRejectedLocally() {
+		AtomicLong used = new AtomicLong();
+		RateLimitQuotaLeases leases = node(used);
+		for (int i = 0; i < 10; i++) {
+			assertTrue(leases.tryAcquire("key", 10, WINDOW, 10));
+		}
+		assertFalse(leases.tryAcquire("key", 10, WINDOW, 10));
+		long requests = leases.getLeaseRequests().sum();
+		assertFalse(leases.tryAcquire("key", 10, WINDOW, 10));
+		assertEquals(requests, leases.getLeaseRequests().sum());
+	}
+
+	@Test
+	public void failedLeaseBacksOffWithoutExhaustingTheWindow() throws Exception {
+		AtomicLong used = new AtomicLong();
+		AtomicBoolean fail = new AtomicBoolean(true);
+		RateLimitQuotaLeases leases = new RateLimitQuotaLeases(null, null) {
+			@Override
+			protected long lease(String windowKey, long max, long wanted, long ttlMillis) {
+				if (fail.getAndSet(false)) {
+					throw new IllegalStateException("redis is down");
+				}
+				return node(used).lease(windowKey, max, wanted, ttlMillis);
+			}
+		};
+		assertFalse(leases.tryAcquire("key", 10, WINDOW, 10));
+		Thread.sleep(150);
+		for (int i = 0; i < 10; i++) {
+			assertTrue(leases.tryAcquire("key", 10, WINDOW, 10));
+		}
+		assertFalse(leases.tryAcquire("key", 10, WINDOW, 10));
+	}
+
+	private static RateLimitQuotaLeases node(AtomicLong used) {
+		return new RateLimitQuotaLeases(null, null) {
+			@Override
+			protected long lease(String windowKey, long max, long wanted, long ttlMillis) {
+				getLeaseRequests().increment();
+				synchronized (used) {
+					long granted = Math.min(wanted, max - used.get());
+					if (granted <= 0) {
+						return 0L;
+					}
+					used.addAndGet(granted);
+					return granted;
+				}
+			}
+		};
+	}
+}
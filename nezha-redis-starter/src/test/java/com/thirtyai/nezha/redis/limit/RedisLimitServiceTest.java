@@ -0,0 +1,157 @@
+package com.thirtyai.nezha.redis.limit;
+
+import com.thirtyai.nezha.redis.script.RedisScriptRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * redis limit service test, the scripts run on a java model of their lua with a controlled redis clock
+ */
+public class RedisLimitServiceTest {
+	private static final long WINDOW = TimeUnit.MINUTES.toMillis(10);
+
+	private LuaModel lua;
+	private RedisLimitService limitService;
+
+	@Before
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		lua = new LuaModel();
+		RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+		when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(null));
+		limitService = new RedisLimitService(redisTemplate, lua);
+	}
+
+	@Test
+	public void gcraAdmitsTheBurstAndDeniesTheNext() {
+		for (long i = 1; i <= 5; i++) {
+			assertEquals(Long.valueOf(i), gcra(5));
+		}
+		assertEquals(Long.valueOf(0), gcra(5));
+		assertEquals(WINDOW / 5, lua.interval, 0.000001);
+	}
+
+	@Test
+	public void gcraAdmitsOneMoreAfterOneInterval() {
+		for (int i = 0; i < 5; i++) {
+			gcra(5);
+		}
+		lua.now += WINDOW / 5 - 1;
+		assertEquals(Long.valueOf(0), gcra(5));
+		lua.now += 1;
+		assertEquals(Long.valueOf(5), gcra(5));
+		assertEquals(Long.valueOf(0), gcra(5));
+	}
+
+	@Test
+	public void gcraAdmitsTheWholeBurstWithAFractionalInterval() {
+		for (long i = 1; i <= 7; i++) {
+			assertEquals(Long.valueOf(i), gcra(7));
+		}
+		assertEquals(Long.valueOf(0), gcra(7));
+	}
+
+	@Test
+	public void slidingWindowTrimsWithTheWindowMillis() {
+		for (long i = 1; i <= 3; i++) {
+			assertEquals(Long.valueOf(i), limitService.limit("key", 3, WINDOW / 1000, TimeUnit.SECONDS));
+		}
+		assertEquals(Long.valueOf(0), limitService.limit("key", 3, WINDOW / 1000, TimeUnit.SECONDS));
+		assertEquals(WINDOW, lua.ttl);
+
+		lua.now += WINDOW - 1;
+		assertEquals(Long.valueOf(0), limitService.limit("key", 3, WINDOW / 1000, TimeUnit.SECONDS));
+		lua.now += 1;
+		assertEquals(Long.valueOf(1), limitService.limit("key", 3, WINDOW / 1000, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void slidingWindowCountsRequestsOfTheSameMillis() {
+		for (long i = 1; i <= 100; i++) {
+			assertEquals(Long.valueOf(i), limitService.limit("key", 100, WINDOW, TimeUnit.MILLISECONDS));
+		}
+		assertEquals(100, lua.members.size());
+		assertEquals(Long.valueOf(0), limitService.limit("key", 100, WINDOW, TimeUnit.MILLISECONDS));
+	}
+
+	private Long gcra(long max) {
+		return limitService.limit("key", max, WINDOW, TimeUnit.MILLISECONDS, RateLimitAlgorithm.Gcra);
+	}
+
+	/**
+	 * the gcra and sliding window scripts in java, redis time stands still unless the test moves it,
+	 * the caller's now argument is checked against the wall clock and replaced by the redis clock.
+	 */
+	private static class LuaModel extends RedisScriptRegistry {
+		private long now = System.currentTimeMillis();
+		private double interval;
+		private long ttl;
+		private final Map<String, String> strings = new HashMap<>();
+		private final Map<String, Map<String, Long>> zsets = new HashMap<>();
+		private final Set<String> members = new HashSet<>();
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> T eval(RedisScriptingCommands connection, RedisScript<?> script, ReturnType returnType, int numKeys, byte[]... keysAndArgs) {
+			String key = str(keysAndArgs[0]);
+			long callerNow = Long.parseLong(str(keysAndArgs[3]));
+			assertTrue(Math.abs(System.currentTimeMillis() - callerNow) < TimeUnit.SECONDS.toMillis(10));
+			if (script.getScriptAsString().contains("interval")) {
+				return (T) gcra(key, Double.parseDouble(str(keysAndArgs[1])), Double.parseDouble(str(keysAndArgs[2])));
+			}
+			return (T) slidingWindow(key, Long.parseLong(str(keysAndArgs[1])), Long.parseLong(str(keysAndArgs[2])), str(keysAndArgs[4]));
+		}
+
+		private Long gcra(String key, double interval, double window) {
+			this.interval = interval;
+			String stored = strings.get(key);
+			double tat = stored == null ? now : Double.parseDouble(stored);
+			if (tat < now) {
+				tat = now;
+			}
+			double newTat = tat + interval;
+			if (newTat - now > window + 0.001) {
+				return 0L;
+			}
+			strings.put(key, String.format(Locale.ROOT, "%.17g", newTat));
+			return (long) Math.ceil((newTat - now) / interval - 0.000001);
+		}
+
+		private Long slidingWindow(String key, long max, long ttl, String member) {
+			this.ttl = ttl;
+			Map<String, Long> zset = zsets.computeIfAbsent(key, name -> new HashMap<>());
+			long expired = now - ttl;
+			zset.values().removeIf(score -> score <= expired);
+			long nextLimit = zset.size() + 1;
+			if (nextLimit > max) {
+				return 0L;
+			}
+			zset.put(member, now);
+			members.add(member);
+			return nextLimit;
+		}
+
+		private static String str(byte[] bytes) {
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+}
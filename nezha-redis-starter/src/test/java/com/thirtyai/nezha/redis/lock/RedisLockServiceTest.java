@@ -0,0 +1,62 @@
+package com.thirtyai.nezha.redis.lock;
+
+import com.thirtyai.nezha.redis.script.RedisScriptRegistry;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * redis lock service test
+ */
+@SuppressWarnings("unchecked")
+public class RedisLockServiceTest {
+
+	@Test
+	public void watchdogRenewsUntilReleased() throws Exception {
+		RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+		when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(1L);
+		RedisLockService lockService = new RedisLockService(redisTemplate, new RedisScriptRegistry());
+
+		assertTrue(lockService.lock("key", 30L, 0, 0L, true));
+		Thread.sleep(100L);
+		assertTrue(lockService.getRenewals().sum() > 0);
+
+		assertTrue(lockService.releaseLock("key"));
+		Thread.sleep(30L);
+		long renewals = lockService.getRenewals().sum();
+		Thread.sleep(60L);
+		assertEquals(renewals, lockService.getRenewals().sum());
+		lockService.destroy();
+	}
+
+	@Test
+	public void zeroSleepKeepsTheRetryTimes() throws Exception {
+		RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+		when(redisTemplate.execute(any(RedisCallback.class))).thenReturn(0L, 0L, 0L, 1L);
+		RedisLockService lockService = new RedisLockService(redisTemplate, new RedisScriptRegistry());
+
+		assertTrue(lockService.lock("key", 30L, 3, 0L));
+		verify(redisTemplate, times(4)).execute(any(RedisCallback.class));
+		lockService.destroy();
+	}
+
+	@Test
+	public void ownerIsPerThread() throws Exception {
+		RedisLockService lockService = new RedisLockService(mock(RedisTemplate.class), new RedisScriptRegistry());
+		String owner = lockService.owner();
+		assertEquals(owner, lockService.owner());
+		assertNotEquals(owner, CompletableFuture.supplyAsync(lockService::owner).get());
+		lockService.destroy();
+	}
+}
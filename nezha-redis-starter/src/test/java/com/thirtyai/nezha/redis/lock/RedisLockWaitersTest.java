@@ -0,0 +1,46 @@
+package com.thirtyai.nezha.redis.lock;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * redis lock waiters test
+ */
+public class RedisLockWaitersTest {
+
+	@Test
+	public void releaseWakesTheWaiters() throws Exception {
+		RedisLockWaiters waiters = new RedisLockWaiters();
+		long generation = waiters.join("key");
+		CompletableFuture<Long> waited = CompletableFuture.supplyAsync(() -> {
+			long start = System.nanoTime();
+			try {
+				waiters.await("key", generation, 10_000L);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		});
+		Thread.sleep(50L);
+		waiters.released("key");
+		assertTrue(waited.get(5, TimeUnit.SECONDS) < 5_000L);
+		waiters.leave("key");
+	}
+
+	@Test
+	public void releaseBeforeAwaitIsNotLost() throws Exception {
+		RedisLockWaiters waiters = new RedisLockWaiters();
+		long generation = waiters.join("key");
+		waiters.released("key");
+		long start = System.nanoTime();
+		assertEquals(generation + 1, waiters.await("key", generation, 10_000L));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1_000L);
+		waiters.leave("key");
+		assertEquals(0L, waiters.generation("key"));
+	}
+}
@@ -0,0 +1,77 @@
+package com.thirtyai.nezha.redis.operator;
+
+import org.junit.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * batch ops test, every queued command issues exactly one command with a result
+ */
+@SuppressWarnings("unchecked")
+public class BatchOpsTest {
+	private static final List<String> NON_COMMANDS = Arrays.asList("close", "isClosed", "isPipelined", "isQueueing", "getNativeConnection");
+
+	@Test
+	public void mixedCommandsIssueOneCommandEachInOrder() {
+		List<String> issued = new ArrayList<>();
+		List<byte[][]> hSetArgs = new ArrayList<>();
+		RedisConnection connection = mock(RedisConnection.class, invocation -> {
+			String name = invocation.getMethod().getName();
+			if (!NON_COMMANDS.contains(name)) {
+				issued.add(name.equals("execute") ? invocation.getArgument(0) : name);
+				if (name.equals("execute")) {
+					Object[] arguments = invocation.getArguments();
+					hSetArgs.add(Arrays.copyOfRange(arguments, 1, arguments.length, byte[][].class));
+				}
+			}
+			return null;
+		});
+		RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+		when(connectionFactory.getConnection()).thenReturn(connection);
+		RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+		StringRedisSerializer serializer = new StringRedisSerializer();
+		redisTemplate.setKeySerializer(serializer);
+		redisTemplate.setValueSerializer(serializer);
+		redisTemplate.setHashKeySerializer(serializer);
+		redisTemplate.setHashValueSerializer(serializer);
+		redisTemplate.setConnectionFactory(connectionFactory);
+		redisTemplate.afterPropertiesSet();
+
+		Map<String, Object> fields = new LinkedHashMap<>();
+		fields.put("f1", "v1");
+		fields.put("f2", "v2");
+		BatchOps batchOps = new BatchOps().set("k1", "v1").hSetAll("h1", fields).get("k2").incrBy("k3", 2L).hGet("h1", "f1");
+		batchOps.applyTo(redisTemplate);
+
+		assertEquals(Arrays.asList("set", "HSET", "get", "incrBy", "hGet"), issued);
+		assertEquals(batchOps.size(), issued.size());
+		assertArrayEquals(new byte[][]{bytes("h1"), bytes("f1"), bytes("v1"), bytes("f2"), bytes("v2")}, hSetArgs.get(0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void droppedStatusReplyFailsThePipeline() {
+		RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+		when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(Arrays.asList(true, "value"));
+		new RedisOperator(redisTemplate).pipeline(batch -> batch.set("k1", "v1").add(operations -> operations.rename("k1", "k2")).get("k1"));
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,92 @@
+package com.thirtyai.nezha.redis.operator;
+
+import com.thirtyai.nezha.redis.pubsub.AbstractPubSub;
+import com.thirtyai.nezha.redis.serializer.SmileRedisValueSerializer;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.lang.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * redis operator publish test, the body never depends on the template value serializer
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class RedisOperatorPublishTest {
+	private static final String TOPIC = "topic";
+
+	@Test
+	public void smileDefaultSerializerStillDeliversTheMessage() {
+		byte[] body = publish(false);
+		assertEquals("\"{\\\"key\\\":\\\"value\\\"}\"", new String(body, StandardCharsets.UTF_8));
+		assertEquals(Collections.singletonList(Collections.singletonMap("key", "value")), receive(body));
+	}
+
+	@Test
+	public void rawJsonIsDeliveredWhenEnabled() {
+		byte[] body = publish(true);
+		assertEquals("{\"key\":\"value\"}", new String(body, StandardCharsets.UTF_8));
+		assertEquals(Collections.singletonList(Collections.singletonMap("key", "value")), receive(body));
+	}
+
+	private static byte[] publish(boolean rawJson) {
+		RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+		when(redisTemplate.getValueSerializer()).thenReturn((RedisSerializer) new SmileRedisValueSerializer());
+		RedisOperator redisOperator = new RedisOperator(redisTemplate);
+		redisOperator.setPubSubRawJson(rawJson);
+		redisOperator.publish(ChannelTopic.of(TOPIC), Collections.singletonMap("key", "value"));
+
+		ArgumentCaptor<RedisCallback> callback = ArgumentCaptor.forClass(RedisCallback.class);
+		verify(redisTemplate).execute(callback.capture());
+		verify(redisTemplate, never()).convertAndSend(any(), any());
+		RedisConnection connection = mock(RedisConnection.class);
+		callback.getValue().doInRedis(connection);
+		ArgumentCaptor<byte[]> body = ArgumentCaptor.forClass(byte[].class);
+		verify(connection).publish(any(byte[].class), body.capture());
+		return body.getValue();
+	}
+
+	private static List<Map> receive(byte[] body) {
+		MapPubSub listener = new MapPubSub();
+		listener.onMessage(new DefaultMessage(TOPIC.getBytes(StandardCharsets.UTF_8), body), null);
+		assertTrue(listener.errors.isEmpty());
+		return listener.received;
+	}
+
+	private static class MapPubSub extends AbstractPubSub<Map> {
+		private final List<Map> received = new ArrayList<>();
+		private final List<Exception> errors = new ArrayList<>();
+
+		MapPubSub() {
+			super(TOPIC, new RedisOperator(null));
+		}
+
+		@Override
+		public void onMessage(@Nullable Map message) {
+			received.add(message);
+		}
+
+		@Override
+		public void onError(Exception exception) {
+			errors.add(exception);
+		}
+	}
+}
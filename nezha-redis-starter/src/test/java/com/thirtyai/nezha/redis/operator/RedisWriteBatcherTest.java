@@ -0,0 +1,80 @@
+package com.thirtyai.nezha.redis.operator;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * redis write batcher test
+ */
+public class RedisWriteBatcherTest {
+
+	@Test
+	public void commandsOfManyThreadsShareFewPipelines() throws Exception {
+		RedisOperator redisOperator = indexedPipeline();
+		RedisWriteBatcher batcher = new RedisWriteBatcher(redisOperator, 2000L, 64);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<CompletableFuture<CompletableFuture<Object>>> submitted = new ArrayList<>();
+		for (int i = 0; i < 512; i++) {
+			String key = "key" + i;
+			submitted.add(CompletableFuture.supplyAsync(() -> batcher.set(key, "value", Duration.ofMinutes(1)), executor));
+		}
+		for (CompletableFuture<CompletableFuture<Object>> future : submitted) {
+			future.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+		batcher.destroy();
+
+		assertEquals(512L, batcher.getCommands().sum());
+		assertTrue(batcher.getFlushes().sum() < 512L);
+	}
+
+	@Test
+	public void futuresCompleteWithTheirOwnResults() throws Exception {
+		RedisWriteBatcher batcher = new RedisWriteBatcher(indexedPipeline(), 50_000L, 4);
+		List<CompletableFuture<Object>> futures = IntStream.range(0, 4).mapToObj(i -> batcher.del("key" + i)).collect(Collectors.toList());
+		for (int i = 0; i < futures.size(); i++) {
+			assertEquals(i, futures.get(i).get(5, TimeUnit.SECONDS));
+		}
+		batcher.destroy();
+		assertEquals(1L, batcher.getFlushes().sum());
+	}
+
+	@Test
+	public void failedPipelineFailsItsFutures() throws Exception {
+		RedisOperator redisOperator = mock(RedisOperator.class);
+		when(redisOperator.pipeline(any(BatchOps.class))).thenThrow(new IllegalStateException("down"));
+		RedisWriteBatcher batcher = new RedisWriteBatcher(redisOperator, 0L, 8);
+		CompletableFuture<Object> future = batcher.expire("key", Duration.ofSeconds(1));
+		try {
+			future.get(5, TimeUnit.SECONDS);
+		} catch (Exception e) {
+			assertTrue(e.getCause() instanceof IllegalStateException);
+		}
+		assertTrue(future.isCompletedExceptionally());
+		batcher.destroy();
+	}
+
+	private static RedisOperator indexedPipeline() {
+		RedisOperator redisOperator = mock(RedisOperator.class);
+		when(redisOperator.pipeline(any(BatchOps.class))).thenAnswer(invocation -> {
+			BatchOps batchOps = invocation.getArgument(0);
+			return new BatchResults(IntStream.range(0, batchOps.size()).boxed().collect(Collectors.toList()));
+		});
+		return redisOperator;
+	}
+}
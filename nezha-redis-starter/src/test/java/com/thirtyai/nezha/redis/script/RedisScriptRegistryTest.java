@@ -0,0 +1,61 @@
+package com.thirtyai.nezha.redis.script;
+
+import org.junit.Test;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * redis script registry test
+ */
+public class RedisScriptRegistryTest {
+	private static final DefaultRedisScript<Long> SCRIPT = new DefaultRedisScript<>("return 1", Long.class);
+	private static final byte[] KEY = "key".getBytes();
+
+	@Test
+	public void scriptIsLoadedOnceThenCalledBySha() {
+		RedisScriptRegistry registry = new RedisScriptRegistry();
+		RedisScriptingCommands connection = mock(RedisScriptingCommands.class);
+		when(connection.evalSha(eq(SCRIPT.getSha1()), any(ReturnType.class), anyInt(), any(byte[].class))).thenReturn(1L);
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals(1L, (long) registry.<Long>eval(connection, SCRIPT, ReturnType.INTEGER, 1, KEY));
+		}
+
+		verify(connection, times(1)).scriptLoad(any(byte[].class));
+		verify(connection, times(3)).evalSha(eq(SCRIPT.getSha1()), any(ReturnType.class), anyInt(), any(byte[].class));
+		verify(connection, never()).eval(any(byte[].class), any(ReturnType.class), anyInt(), any(byte[].class));
+	}
+
+	@Test
+	public void noScriptFallsBackToEval() {
+		RedisScriptRegistry registry = new RedisScriptRegistry();
+		RedisScriptingCommands connection = mock(RedisScriptingCommands.class);
+		when(connection.evalSha(eq(SCRIPT.getSha1()), any(ReturnType.class), anyInt(), any(byte[].class)))
+			.thenThrow(new RedisSystemException("error", new IllegalStateException("NOSCRIPT No matching script.")));
+		when(connection.eval(any(byte[].class), any(ReturnType.class), anyInt(), any(byte[].class))).thenReturn(1L);
+
+		assertEquals(1L, (long) registry.<Long>eval(connection, SCRIPT, ReturnType.INTEGER, 1, KEY));
+		assertEquals(1L, registry.getEvalFallbacks().sum());
+	}
+
+	@Test(expected = RedisSystemException.class)
+	public void otherErrorsAreRethrown() {
+		RedisScriptRegistry registry = new RedisScriptRegistry();
+		RedisScriptingCommands connection = mock(RedisScriptingCommands.class);
+		when(connection.evalSha(eq(SCRIPT.getSha1()), any(ReturnType.class), anyInt(), any(byte[].class)))
+			.thenThrow(new RedisSystemException("error", new IllegalStateException("WRONGTYPE")));
+		registry.eval(connection, SCRIPT, ReturnType.INTEGER, 1, KEY);
+	}
+}
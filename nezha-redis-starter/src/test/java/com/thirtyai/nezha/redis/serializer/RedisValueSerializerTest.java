@@ -0,0 +1,62 @@
+package com.thirtyai.nezha.redis.serializer;
+
+import com.thirtyai.nezha.common.util.JsonUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * redis value serializer test
+ */
+public class RedisValueSerializerTest {
+	private final JsonRedisValueSerializer json = new JsonRedisValueSerializer(JsonUtil.setJsonObjectMapperParams(null));
+	private final SmileRedisValueSerializer smile = new SmileRedisValueSerializer();
+
+	@Test
+	public void smileDecodesToTheSameShapeWithFewerBytes() {
+		Map<String, Object> graph = graph();
+		byte[] jsonBytes = json.serialize(graph);
+		byte[] smileBytes = smile.serialize(graph);
+		assertEquals(json.deserialize(jsonBytes), smile.deserialize(smileBytes));
+		assertTrue(smileBytes.length + " < " + jsonBytes.length, smileBytes.length < jsonBytes.length);
+	}
+
+	@Test
+	public void registryFallsBackToDefault() {
+		RedisValueSerializerRegistry registry = new RedisValueSerializerRegistry(Arrays.asList(json, smile, new JdkRedisValueSerializer()), "Smile");
+		assertSame(smile, registry.getDefaultSerializer());
+		assertSame(json, registry.getSerializer("json"));
+		assertSame(smile, registry.getSerializer(null));
+		assertSame(smile, registry.getSerializer("unknown"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownDefaultIsRejected() {
+		new RedisValueSerializerRegistry(Arrays.asList(json, smile), "kryo");
+	}
+
+	private static Map<String, Object> graph() {
+		List<Object> items = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			Map<String, Object> item = new LinkedHashMap<>();
+			item.put("id", 1000L + i);
+			item.put("name", "item-" + i);
+			item.put("price", 9.99 * i);
+			item.put("tags", Arrays.asList("red", "blue", "green"));
+			items.add(item);
+		}
+		Map<String, Object> order = new LinkedHashMap<>();
+		order.put("orderId", "20200707000001");
+		order.put("customer", "nezha");
+		order.put("items", items);
+		return order;
+	}
+}